@@ -0,0 +1,30 @@
+-- Тестовые данные: 10 сайтов по 100 000 страниц и 50 000 лемм, 10 лемм на страницу.
+
+SET SESSION cte_max_recursion_depth = 1000000;
+
+INSERT INTO site (url, name, status, status_time, active)
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 10)
+SELECT CONCAT('https://site-', n, '.example'), CONCAT('Сайт ', n), 'INDEXED', NOW(6), 1
+FROM seq;
+
+INSERT INTO page (site_id, path, code, content, title, text)
+WITH RECURSIVE seq (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < 999999)
+SELECT n DIV 100000 + 1,
+       CONCAT('/catalog/section-', n MOD 100, '/subsection-', n MOD 1000 DIV 10, '/item-', n),
+       200, '<html></html>', CONCAT('Страница ', n), CONCAT('Текст страницы ', n)
+FROM seq;
+
+INSERT INTO lemma (site_id, lemma, frequency)
+WITH RECURSIVE seq (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < 499999)
+SELECT n DIV 50000 + 1, CONCAT('лемма', n MOD 50000), 20
+FROM seq;
+
+INSERT INTO lemmaindex (page_id, lemma_id, lemmarank, first_position)
+WITH RECURSIVE k (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM k WHERE n < 9)
+SELECT page.id,
+       (page.site_id - 1) * 50000 + (page.id * 31 + k.n * 7919) MOD 50000 + 1,
+       k.n + 1,
+       k.n * 10
+FROM page CROSS JOIN k;
+
+ANALYZE TABLE site, page, lemma, lemmaindex;
@@ -0,0 +1,36 @@
+-- Частые запросы приложения с параметрами из середины тестовых данных.
+
+-- SiteRepository.findByUrl
+EXPLAIN ANALYZE
+SELECT * FROM site WHERE url = 'https://site-5.example' AND active = 1 LIMIT 1;
+
+-- PageRepository.findIdByPath
+EXPLAIN ANALYZE
+SELECT id FROM page WHERE site_id = 5 AND path = '/catalog/section-23/subsection-12/item-450123' LIMIT 1;
+
+-- SitePurgeRepository: очередная порция страниц сайта
+EXPLAIN ANALYZE
+SELECT id FROM page WHERE site_id = 5 AND id > 450000 ORDER BY id LIMIT 1000;
+
+-- IndexBatchRepository.getLemmaIds
+EXPLAIN ANALYZE
+SELECT id, lemma FROM lemma WHERE site_id = 5 AND lemma IN ('лемма100', 'лемма2000', 'лемма30000', 'лемма49999');
+
+-- Список страниц леммы
+EXPLAIN ANALYZE
+SELECT page_id, lemmarank FROM lemmaindex WHERE lemma_id = 212345;
+
+-- IndexBatchRepository.getFirstPositions
+EXPLAIN ANALYZE
+SELECT lemmaindex.page_id, MIN(lemmaindex.first_position)
+FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id
+WHERE lemmaindex.page_id IN (450001, 450002, 450003, 450004, 450005, 450006, 450007, 450008, 450009, 450010)
+  AND lemma.lemma IN ('лемма100', 'лемма2000', 'лемма30000')
+  AND lemmaindex.first_position >= 0
+GROUP BY lemmaindex.page_id;
+
+-- IndexBatchRepository.updateLemmaMap: индексы страницы
+EXPLAIN ANALYZE
+SELECT lemma.lemma, lemmaindex.lemma_id, lemmaindex.lemmarank, lemmaindex.first_position
+FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id
+WHERE lemmaindex.page_id = 450123;
@@ -0,0 +1,22 @@
+-- Сравнение планов и времени частых запросов до и после миграции V2__hot_query_indexes.
+-- Запуск из корня проекта (нужен MySQL 8.0.18+ для EXPLAIN ANALYZE):
+--   mysql -u root -p --table < benchmarks/schema-benchmark.sql > benchmarks/result.txt
+-- Скрипт создаёт отдельную базу search_engine_bench и заполняет её
+-- 10 сайтами, 1 000 000 страниц, 500 000 лемм и 10 000 000 индексов.
+
+SET NAMES utf8mb4;
+DROP DATABASE IF EXISTS search_engine_bench;
+CREATE DATABASE search_engine_bench DEFAULT CHARACTER SET utf8mb4;
+USE search_engine_bench;
+
+SOURCE src/main/resources/db/migration/V1__init.sql;
+SOURCE benchmarks/generate-data.sql;
+
+SELECT 'До миграции V2' AS stage;
+SOURCE benchmarks/hot-queries.sql;
+
+SOURCE src/main/resources/db/migration/V2__hot_query_indexes.sql;
+ANALYZE TABLE site, page, lemma, lemmaindex;
+
+SELECT 'После миграции V2' AS stage;
+SOURCE benchmarks/hot-queries.sql;
@@ -0,0 +1,137 @@
+package searchengine.bench;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.model.StatusType;
+import searchengine.model.Website;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.IndexingService;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * Нагрузочный прогон полного обхода без сети и внешней базы: синтетический сайт (StubSite)
+ * обходится приложением, данные пишутся во встроенный MariaDB. Печатает число страниц,
+ * скорость обхода, число запросов к базе на страницу, пиковое использование кучи
+ * и число запросов к сайту (повторные загрузки видны как превышение числа страниц).
+ * <p>
+ * Параметры - системные свойства: bench.pages (1000), bench.links (10),
+ * bench.shape (tree, random, chain), bench.page-size в байтах (20000),
+ * bench.latency в миллисекундах (0), bench.concurrency - запросов к сайту одновременно (16),
+ * bench.timeout в секундах (600).
+ * Свойства приложения переопределяются обычным образом, например -Dcrawl-settings.threads=16.
+ */
+public class CrawlLoadHarness {
+    private static final String SITE_NAME = "Нагрузочный стенд";
+
+    public static void main(String[] args) throws Exception {
+        int pages = Integer.getInteger("bench.pages", 1000);
+        int links = Integer.getInteger("bench.links", 10);
+        String shape = System.getProperty("bench.shape", "tree");
+        int pageSize = Integer.getInteger("bench.page-size", 20000);
+        long latency = Long.getLong("bench.latency", 0);
+        long timeout = Long.getLong("bench.timeout", 600) * 1000;
+
+        StubSite site = new StubSite(pages, links, shape, pageSize, latency);
+        site.start();
+        DBConfiguration dbConfiguration = DBConfigurationBuilder.newBuilder().setPort(0).build();
+        DB db = DB.newEmbeddedDB(dbConfiguration);
+        db.start();
+        db.createDB("search_engine");
+        StatementCounter statementCounter = new StatementCounter();
+        ConfigurableApplicationContext context = null;
+        try {
+            context = new SpringApplicationBuilder(Application.class)
+                    .initializers(applicationContext -> applicationContext.getBeanFactory()
+                            .addBeanPostProcessor(new DataSourceCounter(statementCounter)))
+                    .run("--spring.datasource.url=" + dbConfiguration.getURL("search_engine")
+                                    + "?rewriteBatchedStatements=true",
+                            "--spring.datasource.username=root",
+                            "--spring.datasource.password=",
+                            "--spring.main.web-application-type=none",
+                            "--spring.jpa.show-sql=false",
+                            "--indexing-settings.sites[0].url=" + site.getUrl(),
+                            "--indexing-settings.sites[0].name=" + SITE_NAME,
+                            "--crawl-settings.crawl-delay=0",
+                            "--crawl-settings.max-concurrency-per-host=" + Integer.getInteger("bench.concurrency", 16));
+
+            IndexingService indexingService = context.getBean(IndexingService.class);
+            SiteRepository siteRepository = context.getBean(SiteRepository.class);
+            PageRepository pageRepository = context.getBean(PageRepository.class);
+            long statementsBefore = statementCounter.getStatements();
+            long batchedRowsBefore = statementCounter.getBatchedRows();
+            resetPeakHeapUsage();
+            long start = System.nanoTime();
+            indexingService.startIndexing();
+            List<Website> websites = siteRepository.findAllByUrl(site.getUrl());
+            long deadline = System.currentTimeMillis() + timeout;
+            while (websites.stream().anyMatch(website -> website.getStatus() == StatusType.INDEXING)) {
+                if (System.currentTimeMillis() > deadline) {
+                    indexingService.stopIndexing();
+                    System.out.println("Обход не завершился за " + timeout / 1000 + " с");
+                    break;
+                }
+                Thread.sleep(100);
+                websites = siteRepository.findAllByUrl(site.getUrl());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long statements = statementCounter.getStatements() - statementsBefore;
+            long batchedRows = statementCounter.getBatchedRows() - batchedRowsBefore;
+            Website website = siteRepository.findByUrl(site.getUrl());
+            int pageCount = website == null ? 0 : pageRepository.getPageCountBySiteId(website.getId());
+
+            System.out.printf("Сайт: %d страниц, %d ссылок, форма %s, %d байт, задержка %d мс%n",
+                    pages, links, shape, pageSize, latency);
+            System.out.printf("Статус: %s%n", website == null ? "-" : website.getStatus());
+            System.out.printf("Проиндексировано страниц: %d за %.1f с (%.1f стр/с)%n",
+                    pageCount, seconds, pageCount / seconds);
+            System.out.printf("Запросов к сайту: %d, получено %.1f МБ%n", site.getRequests(), site.getBytes() / 1e6);
+            System.out.printf("Запросов к базе: %d (%.1f на страницу), строк в пакетах: %d (%.1f на страницу)%n",
+                    statements, (double) statements / Math.max(pageCount, 1),
+                    batchedRows, (double) batchedRows / Math.max(pageCount, 1));
+            System.out.printf("Пиковое использование кучи: %.1f МБ%n", getPeakHeapUsage() / 1e6);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            db.stop();
+            site.stop();
+        }
+    }
+
+    private static void resetPeakHeapUsage() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private record DataSourceCounter(StatementCounter statementCounter) implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof DataSource dataSource ? statementCounter.wrap(dataSource) : bean;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package searchengine.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Синтетический сайт на встроенном HTTP-сервере. Страницы /page/N.html (N от 0 до pages - 1)
+ * генерируются детерминированно: русский текст заданного размера и ссылки по форме графа.
+ * <ul>
+ *     <li>tree - страница N ссылается на N * links + 1 ... N * links + links и на главную;</li>
+ *     <li>random - на следующую страницу и links - 1 случайных;</li>
+ *     <li>chain - на следующую страницу и links - 1 предыдущих: обход идёт в глубину.</li>
+ * </ul>
+ * Перед ответом сервер ждёт latency миллисекунд, имитируя сеть.
+ */
+public class StubSite {
+    private static final String[] WORDS = {
+            "библиотека", "книга", "читатель", "выставка", "лекция", "город", "история", "музей", "писатель",
+            "роман", "журнал", "страница", "каталог", "телефон", "экран", "доставка", "магазин", "цена",
+            "гарантия", "камера", "памяти", "работа", "встреча", "вечер", "театр", "спектакль", "зритель",
+            "экскурсия", "школа", "студент", "учитель", "урок", "программа", "новость", "событие", "праздник",
+            "весна", "лето", "осень", "зима", "дорога", "поезд", "вокзал", "улица", "площадь", "дом", "квартира",
+            "окно", "дверь", "стол", "лампа", "картина", "художник", "музыка", "концерт", "песня", "голос",
+            "большой", "новый", "старый", "интересный", "красивый", "первый", "последний", "московский",
+            "читать", "писать", "смотреть", "слушать", "играть", "работать", "открывать", "рассказывать",
+            "и", "в", "на", "с", "по", "для", "о", "из", "не", "что"
+    };
+
+    private final int pages;
+    private final int links;
+    private final String shape;
+    private final int pageSize;
+    private final long latency;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubSite(int pages, int links, String shape, int pageSize, long latency) {
+        this.pages = pages;
+        this.links = Math.max(links, 1);
+        this.shape = shape;
+        this.pageSize = pageSize;
+        this.latency = latency;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            int number = getPageNumber(exchange.getRequestURI().getPath());
+            if (number < 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = generatePage(number).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+            bytes.addAndGet(body.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int getPageNumber(String path) {
+        if (path.equals("/") || path.isEmpty()) {
+            return 0;
+        }
+        if (!path.startsWith("/page/") || !path.endsWith(".html")) {
+            return -1;
+        }
+        try {
+            int number = Integer.parseInt(path.substring("/page/".length(), path.length() - ".html".length()));
+            return number >= 0 && number < pages ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String generatePage(int number) {
+        Random random = new Random(number);
+        StringBuilder html = new StringBuilder(pageSize + 1024);
+        html.append("<!DOCTYPE html><html lang=\"ru\"><head><meta charset=\"utf-8\"><title>Страница ")
+                .append(number).append(": ").append(sentence(random, 5)).append("</title>")
+                .append("<script>var page = ").append(number).append(";</script></head><body><nav>");
+        for (int link : getLinks(number, random)) {
+            html.append("<a href=\"/page/").append(link).append(".html\">").append(sentence(random, 2)).append("</a> ");
+        }
+        html.append("</nav><h1>").append(sentence(random, 6)).append("</h1>");
+        while (html.length() < pageSize) {
+            if (random.nextInt(8) == 0) {
+                html.append("<h2>").append(sentence(random, 4)).append("</h2>");
+            }
+            html.append("<p>");
+            for (int i = 0; i < 5; i++) {
+                html.append(sentence(random, 8 + random.nextInt(10))).append(". ");
+            }
+            html.append("</p>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private Set<Integer> getLinks(int number, Random random) {
+        Set<Integer> result = new LinkedHashSet<>();
+        switch (shape) {
+            case "tree" -> {
+                for (int i = 1; i <= links; i++) {
+                    long child = (long) number * links + i;
+                    if (child < pages) {
+                        result.add((int) child);
+                    }
+                }
+                result.add(0);
+            }
+            case "chain" -> {
+                if (number + 1 < pages) {
+                    result.add(number + 1);
+                }
+                for (int i = 1; i < links && number - i >= 0; i++) {
+                    result.add(number - i);
+                }
+            }
+            default -> {
+                if (number + 1 < pages) {
+                    result.add(number + 1);
+                }
+                for (int i = 1; i < links; i++) {
+                    result.add(random.nextInt(pages));
+                }
+            }
+        }
+        result.remove(number);
+        return result;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.toString();
+    }
+}
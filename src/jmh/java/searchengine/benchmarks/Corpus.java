@@ -0,0 +1,63 @@
+package searchengine.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * HTML-страницы для бенчмарков. По умолчанию берутся страницы из src/jmh/resources/corpus
+ * (список - в corpus/index.txt); каталог с сохранёнными страницами сайтов можно
+ * указать свойством corpus.dir: -jvmArgsAppend -Dcorpus.dir=/путь/к/страницам
+ */
+public class Corpus {
+    private Corpus() {
+    }
+
+    public static List<String> load() {
+        String directory = System.getProperty("corpus.dir");
+        List<String> pages = directory == null ? loadResources() : loadDirectory(Path.of(directory));
+        if (pages.isEmpty()) {
+            throw new IllegalStateException("Корпус страниц пуст");
+        }
+        return pages;
+    }
+
+    private static List<String> loadDirectory(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> pages = new ArrayList<>();
+            for (Path file : files.filter(path -> path.toString().endsWith(".html")).sorted().toList()) {
+                pages.add(Files.readString(file, StandardCharsets.UTF_8));
+            }
+            return pages;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> loadResources() {
+        List<String> pages = new ArrayList<>();
+        for (String name : readResource("corpus/index.txt").split("\\R")) {
+            if (!name.isBlank()) {
+                pages.add(readResource("corpus/" + name.strip()));
+            }
+        }
+        return pages;
+    }
+
+    private static String readResource(String name) {
+        try (InputStream stream = Corpus.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Не найден ресурс " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
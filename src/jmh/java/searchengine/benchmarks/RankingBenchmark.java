@@ -0,0 +1,65 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.services.InvertedIndex;
+import searchengine.utility.LemmaCounter;
+import searchengine.utility.TopKCollector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт релевантности, как в IndexingServiceImpl.getRelativeRelevanceMap: пересечение
+ * списков страниц лемм запроса в обратном индексе и отбор 100 лучших страниц.
+ * Списки синтетические: частоты лемм убывают по степенному закону, как в текстах.
+ * Запуск: mvn -P jmh package exec:exec -Djmh.args="RankingBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+    private static final int SITE_ID = 1;
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final int LEMMAS_PER_PAGE = 50;
+    private static final int[] QUERY_LEMMA_RANKS = {10, 50, 200, 1000};
+
+    @Param({"10000", "100000"})
+    private int pageCount;
+    @Param({"2", "4"})
+    private int queryLemmaCount;
+
+    private InvertedIndex invertedIndex;
+    private Set<String> queryLemmas;
+
+    @Setup
+    public void setup() {
+        invertedIndex = new InvertedIndex(null);
+        Random random = new Random(42);
+        for (int pageId = 1; pageId <= pageCount; pageId++) {
+            LemmaCounter lemmas = new LemmaCounter(LEMMAS_PER_PAGE);
+            for (int i = 0; i < LEMMAS_PER_PAGE; i++) {
+                int rank = (int) (VOCABULARY_SIZE * Math.pow(random.nextDouble(), 3));
+                lemmas.add("лемма" + rank, 1 + random.nextInt(5));
+            }
+            invertedIndex.addPage(SITE_ID, pageId, lemmas);
+        }
+        invertedIndex.activate(SITE_ID);
+        queryLemmas = new TreeSet<>();
+        for (int i = 0; i < queryLemmaCount; i++) {
+            queryLemmas.add("лемма" + QUERY_LEMMA_RANKS[i]);
+        }
+    }
+
+    @Benchmark
+    public TopKCollector.Result search() {
+        TopKCollector collector = new TopKCollector(100);
+        invertedIndex.search(List.of(SITE_ID), queryLemmas, Integer.MAX_VALUE, collector);
+        return collector.getResult();
+    }
+}
@@ -0,0 +1,83 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.utility.LemmaCounter;
+import searchengine.utility.Morphology;
+import searchengine.utility.TextAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор и лемматизация страниц корпуса. Одна операция - проход по всем страницам,
+ * поэтому результаты сравнимы только на одном и том же корпусе.
+ * Запуск: mvn -P jmh package exec:exec -Djmh.args="TextAnalyzerBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextAnalyzerBenchmark {
+    private List<String> pages;
+    private List<String> texts;
+    private List<Set<String>> queries;
+
+    @Setup
+    public void setup() {
+        Morphology.getInstance();
+        pages = Corpus.load();
+        texts = new ArrayList<>();
+        queries = new ArrayList<>();
+        for (String page : pages) {
+            String text = TextAnalyzer.getTextWithoutHtmlTags(page);
+            texts.add(text);
+            queries.add(getQuery(TextAnalyzer.getLemmas(text)));
+        }
+    }
+
+    /**
+     * Три леммы страницы из второй половины их упорядоченного списка - запрос, для которого сниппет ищется по тексту.
+     */
+    private static Set<String> getQuery(LemmaCounter lemmas) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(lemmas.keySet()));
+        Set<String> query = new TreeSet<>();
+        for (int i = sorted.size() / 2; i < sorted.size() && query.size() < 3; i += Math.max(sorted.size() / 8, 1)) {
+            query.add(sorted.get(i));
+        }
+        return query;
+    }
+
+    @Benchmark
+    public void getLemmas(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(TextAnalyzer.getLemmas(text));
+        }
+    }
+
+    @Benchmark
+    public void getTextWithoutHtmlTags(Blackhole blackhole) {
+        for (String page : pages) {
+            blackhole.consume(TextAnalyzer.getTextWithoutHtmlTags(page));
+        }
+    }
+
+    @Benchmark
+    public void getSnippets(Blackhole blackhole) {
+        for (int i = 0; i < texts.size(); i++) {
+            blackhole.consume(TextAnalyzer.getSnippets(texts.get(i), -1, queries.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void getPageTitle(Blackhole blackhole) {
+        for (String page : pages) {
+            blackhole.consume(TextAnalyzer.getPageTitle(page));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawl-settings")
+public class CrawlSettings {
+    ExecutorMode executor = ExecutorMode.FIXED;
+    ReindexMode reindexMode = ReindexMode.SHADOW;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int maxFetches = 256;
+    int cpuThreads = Runtime.getRuntime().availableProcessors();
+    int maxConcurrencyPerHost = 2;
+    long crawlDelay = 100;
+    long timeout = 10000;
+    long maxPageSize = 5242880;
+    long lemmaFlushInterval = 5000;
+    int pageBatchSize = 50;
+    long pageFlushInterval = 1000;
+    long checkpointInterval = 10000;
+}
@@ -0,0 +1,5 @@
+package searchengine.config;
+
+public enum ExecutorMode {
+    FIXED, IO, VIRTUAL
+}
@@ -0,0 +1,38 @@
+package searchengine.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import searchengine.utility.Morphology;
+
+@Configuration
+public class MorphologyConfig {
+    @Value("${morphology.cache-size:" + Morphology.DEFAULT_CACHE_SIZE + "}")
+    private int cacheSize;
+
+    /**
+     * Словарь загружается при старте приложения, а не при первой индексации или первом поиске.
+     * Попадания и промахи кеша словоформ, доля попаданий и размер кеша публикуются как метрики
+     * morphology.cache.hits, morphology.cache.misses, morphology.cache.hit.rate и morphology.cache.size.
+     */
+    @Bean
+    public Morphology morphology(MeterRegistry registry) {
+        Morphology morphology = Morphology.init(cacheSize);
+        FunctionCounter.builder("morphology.cache.hits", morphology, Morphology::getHits)
+                .description("Словоформы, найденные в кеше")
+                .register(registry);
+        FunctionCounter.builder("morphology.cache.misses", morphology, Morphology::getMisses)
+                .description("Словоформы, разобранные словарём")
+                .register(registry);
+        Gauge.builder("morphology.cache.hit.rate", morphology, Morphology::getHitRate)
+                .description("Доля обращений к кешу словоформ, обслуженных из кеша")
+                .register(registry);
+        Gauge.builder("morphology.cache.size", morphology, Morphology::getCacheSize)
+                .description("Словоформы в кеше")
+                .register(registry);
+        return morphology;
+    }
+}
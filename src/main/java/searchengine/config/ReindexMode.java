@@ -0,0 +1,5 @@
+package searchengine.config;
+
+public enum ReindexMode {
+    DELETE, SHADOW, INCREMENTAL, RESUME
+}
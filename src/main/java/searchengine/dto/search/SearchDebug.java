@@ -0,0 +1,13 @@
+package searchengine.dto.search;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class SearchDebug {
+    private double totalMs;
+    private boolean cached;
+    private Map<String, Double> phasesMs;
+    private Map<String, Integer> postingSizes;
+}
@@ -1,5 +1,6 @@
 package searchengine.dto.search;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 import searchengine.dto.IndexResponse;
@@ -11,6 +12,8 @@ import java.util.List;
 public class SearchResponse extends IndexResponse {
     private int count;
     private List<SearchItem> data;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchDebug debug;
 
     public SearchResponse(boolean result, int count, List<SearchItem> data) {
         super(result);
@@ -10,17 +10,19 @@ import javax.persistence.*;
 @Getter
 @NoArgsConstructor
 @Entity
-@Table(name = "lemmaindex")
+@Table(name = "lemmaindex", uniqueConstraints = @UniqueConstraint(columnNames = {"page_id", "lemma_id"}))
 public class Index {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "page_id")
     private Page page;
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lemma_id")
     private Lemma lemma;
     @Column(name = "lemmarank")
     private float rank;
+    @Column(name = "first_position", nullable = false)
+    private int firstPosition = -1;
 }
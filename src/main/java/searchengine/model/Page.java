@@ -11,15 +11,27 @@ import javax.persistence.*;
 @Table(name = "page")
 public class Page {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "page_id")
+    @TableGenerator(name = "page_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_id",
+            pkColumnValue = "page", allocationSize = 100)
     private int id;
-    @Column(nullable = false)
+    @Column(columnDefinition = "VARCHAR(2048)", nullable = false)
     private String path;
-    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "site_id")
     private Website site;
     @Column(nullable = false)
     private int code;
-    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
-    private String content;
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] content;
+    @Column(columnDefinition = "TEXT")
+    private String title;
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String text;
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
 }
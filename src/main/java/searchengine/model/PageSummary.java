@@ -0,0 +1,11 @@
+package searchengine.model;
+
+/**
+ * Краткие сведения о странице без её содержимого.
+ */
+public interface PageSummary {
+    Integer getId();
+    Integer getSiteId();
+    String getPath();
+    String getTitle();
+}
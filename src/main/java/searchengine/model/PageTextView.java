@@ -0,0 +1,9 @@
+package searchengine.model;
+
+/**
+ * Извлечённый при индексации текст страницы.
+ */
+public interface PageTextView {
+    Integer getId();
+    String getText();
+}
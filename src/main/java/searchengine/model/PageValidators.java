@@ -0,0 +1,12 @@
+package searchengine.model;
+
+/**
+ * Сведения о сохранённой странице, по которым проверяется, изменилась ли она на сайте.
+ */
+public interface PageValidators {
+    Integer getId();
+    Integer getCode();
+    String getEtag();
+    String getLastModified();
+    String getContentHash();
+}
@@ -17,7 +17,7 @@ public class Website {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
-    @Column(columnDefinition = "VARCHAR(255)", nullable = false, unique = true)
+    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String url;
     @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String name;
@@ -28,6 +28,8 @@ public class Website {
     private StatusType status;
     @Column(name = "status_time", nullable = false)
     private LocalDateTime statusTime;
+    @Column(nullable = false)
+    private boolean active;
     @OneToMany(mappedBy = "site", cascade = CascadeType.ALL)
     private List<Page> pages;
 }
@@ -0,0 +1,72 @@
+package searchengine.repositories;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import searchengine.utility.ContentHash;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Сохранённая очередь обхода (таблица crawl_frontier). Записи пишутся пакетами:
+ * найденный адрес добавляется как ожидающий, обработанный помечается выполненным,
+ * и пометка не снимается, даже если адрес позже встретится снова.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CrawlFrontierRepository {
+    public static final int PENDING = 0;
+    public static final int DONE = 1;
+
+    private static final int DELETE_CHUNK_SIZE = 10000;
+    private static final String UPSERT_SQL = "INSERT INTO crawl_frontier (site_id, address_hash, address, state) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE state = GREATEST(state, VALUES(state))";
+    private static final String SELECT_SQL = "SELECT address, state FROM crawl_frontier WHERE site_id = ?";
+    private static final String EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM crawl_frontier WHERE site_id = ?)";
+    private static final String DELETE_SQL = "DELETE FROM crawl_frontier WHERE site_id = ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final int siteId;
+        private final String address;
+        private final int state;
+    }
+
+    public interface EntryConsumer {
+        void accept(String address, int state);
+    }
+
+    public void save(List<Entry> entries) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getSiteId());
+            ps.setString(2, ContentHash.sha256(entry.getAddress()));
+            ps.setString(3, entry.getAddress());
+            ps.setInt(4, entry.getState());
+        });
+    }
+
+    /**
+     * Построчно читает сохранённую очередь сайта, не загружая её в память целиком.
+     */
+    public void forEach(int siteId, EntryConsumer consumer) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streamingTemplate.setFetchSize(Integer.MIN_VALUE);
+        streamingTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getInt(2)), siteId);
+    }
+
+    public boolean exists(int siteId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, siteId));
+    }
+
+    public void delete(int siteId) {
+        while (jdbcTemplate.update(DELETE_SQL, siteId, DELETE_CHUNK_SIZE) > 0) {
+            // удаляем записи порциями, пока они не закончатся
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.utility.LemmaCounter;
+
+import java.util.*;
+
+/**
+ * Пакетная запись лемм и индексов страницы через JDBC.
+ * Вместо запросов на каждую лемму страница сохраняется несколькими
+ * многострочными запросами (при rewriteBatchedStatements=true драйвер MySQL
+ * объединяет пакет в один INSERT). Идентификаторы лемм и их частоты
+ * ведёт LemmaDictionary, здесь пишутся только строки таблиц.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexBatchRepository {
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_LEMMA_SQL = "INSERT IGNORE INTO lemma (site_id, lemma, frequency) VALUES (?, ?, 0)";
+    private static final String SELECT_LEMMA_ID_SQL = "SELECT id, lemma FROM lemma WHERE site_id = :siteId AND lemma IN (:lemmas)";
+    private static final String ADD_FREQUENCY_SQL = "UPDATE lemma SET frequency = frequency + ? WHERE id = ?";
+    private static final String INSERT_INDEX_SQL = "INSERT INTO lemmaindex (page_id, lemma_id, lemmarank, first_position) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_PAGE_INDEX_SQL = "SELECT lemma.lemma, lemmaindex.lemma_id, lemmaindex.lemmarank, lemmaindex.first_position " +
+            "FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id WHERE lemmaindex.page_id = ?";
+    private static final String UPDATE_INDEX_SQL = "UPDATE lemmaindex SET lemmarank = ?, first_position = ? WHERE page_id = ? AND lemma_id = ?";
+    private static final String DELETE_INDEX_SQL = "DELETE FROM lemmaindex WHERE page_id = ? AND lemma_id = ?";
+    private static final String SELECT_FIRST_POSITION_SQL = "SELECT lemmaindex.page_id, MIN(lemmaindex.first_position) " +
+            "FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id " +
+            "WHERE lemmaindex.page_id IN (:pageIds) AND lemma.lemma IN (:lemmas) AND lemmaindex.first_position >= 0 " +
+            "GROUP BY lemmaindex.page_id";
+    private static final String SELECT_POSTINGS_SQL = "SELECT lemma.site_id, lemma.lemma, lemmaindex.page_id, lemmaindex.lemmarank " +
+            "FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id " +
+            "INNER JOIN site ON lemma.site_id = site.id WHERE site.active = 1";
+    private static final String SELECT_SITE_POSTINGS_SQL = "SELECT lemma.site_id, lemma.lemma, lemmaindex.page_id, lemmaindex.lemmarank " +
+            "FROM lemmaindex INNER JOIN lemma ON lemmaindex.lemma_id = lemma.id WHERE lemma.site_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Сохраняет индексы страницы для лемм, идентификаторы которых переданы в lemmaIds.
+     */
+    @Transactional
+    public void saveLemmaMap(int pageId, LemmaCounter lemmaMap, Map<String, Integer> lemmaIds) {
+        List<String> lemmas = lemmaMap.keySet().stream()
+                .filter(lemmaIds::containsKey)
+                .toList();
+        insertIndexes(pageId, lemmas, lemmaMap, lemmaIds);
+    }
+
+    /**
+     * Приводит индексы уже сохранённой страницы к новому набору лемм, записывая только разницу:
+     * индексы исчезнувших лемм удаляются, для новых - добавляются, у оставшихся
+     * обновляются изменившиеся ранги и позиции.
+     * @return прежний набор лемм страницы с рангами
+     */
+    @Transactional
+    public LemmaCounter updateLemmaMap(int pageId, LemmaCounter lemmaMap, Map<String, Integer> lemmaIds) {
+        LemmaCounter oldLemmaMap = new LemmaCounter();
+        Map<String, Integer> oldLemmaIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_PAGE_INDEX_SQL, (RowCallbackHandler) rs -> {
+            oldLemmaMap.add(rs.getString(1), Math.round(rs.getFloat(3)), rs.getInt(4));
+            oldLemmaIds.put(rs.getString(1), rs.getInt(2));
+        }, pageId);
+
+        List<Integer> removedLemmaIds = new ArrayList<>();
+        oldLemmaMap.forEach((lemma, rank) -> {
+            if (!lemmaMap.containsKey(lemma)) {
+                removedLemmaIds.add(oldLemmaIds.get(lemma));
+            }
+        });
+        List<String> addedLemmas = new ArrayList<>();
+        List<String> changedLemmas = new ArrayList<>();
+        for (String lemma : lemmaMap.keySet()) {
+            if (!oldLemmaMap.containsKey(lemma)) {
+                if (lemmaIds.containsKey(lemma)) {
+                    addedLemmas.add(lemma);
+                }
+            } else if (oldLemmaMap.get(lemma) != lemmaMap.get(lemma)
+                    || oldLemmaMap.getPosition(lemma) != lemmaMap.getPosition(lemma)) {
+                changedLemmas.add(lemma);
+            }
+        }
+
+        for (List<Integer> chunk : chunks(removedLemmaIds)) {
+            jdbcTemplate.batchUpdate(DELETE_INDEX_SQL, chunk, chunk.size(), (ps, lemmaId) -> {
+                ps.setInt(1, pageId);
+                ps.setInt(2, lemmaId);
+            });
+        }
+        for (List<String> chunk : chunks(changedLemmas)) {
+            jdbcTemplate.batchUpdate(UPDATE_INDEX_SQL, chunk, chunk.size(), (ps, lemma) -> {
+                ps.setFloat(1, lemmaMap.get(lemma));
+                ps.setInt(2, lemmaMap.getPosition(lemma));
+                ps.setInt(3, pageId);
+                ps.setInt(4, oldLemmaIds.get(lemma));
+            });
+        }
+        insertIndexes(pageId, addedLemmas, lemmaMap, lemmaIds);
+        return oldLemmaMap;
+    }
+
+    private void insertIndexes(int pageId, List<String> lemmas, LemmaCounter lemmaMap, Map<String, Integer> lemmaIds) {
+        for (List<String> chunk : chunks(lemmas)) {
+            jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, chunk, chunk.size(), (ps, lemma) -> {
+                ps.setInt(1, pageId);
+                ps.setInt(2, lemmaIds.get(lemma));
+                ps.setFloat(3, lemmaMap.get(lemma));
+                ps.setInt(4, lemmaMap.getPosition(lemma));
+            });
+        }
+    }
+
+    /**
+     * Возвращает идентификаторы лемм сайта, добавляя недостающие леммы с нулевой частотой.
+     * Уникальный ключ (site_id, lemma) не даёт параллельным потокам создать дубликаты.
+     */
+    public Map<String, Integer> getOrCreateLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> lemmaIds = getLemmaIds(siteId, lemmas);
+        List<String> missingLemmas = lemmas.stream()
+                .filter(lemma -> !lemmaIds.containsKey(lemma))
+                .toList();
+        if (missingLemmas.isEmpty()) {
+            return lemmaIds;
+        }
+        for (List<String> chunk : chunks(missingLemmas)) {
+            jdbcTemplate.batchUpdate(INSERT_LEMMA_SQL, chunk, chunk.size(), (ps, lemma) -> {
+                ps.setInt(1, siteId);
+                ps.setString(2, lemma);
+            });
+        }
+        lemmaIds.putAll(getLemmaIds(siteId, missingLemmas));
+        return lemmaIds;
+    }
+
+    /**
+     * Прибавляет к частотам лемм накопленные изменения; леммы обновляются
+     * в порядке возрастания идентификатора, чтобы параллельные сбросы не взаимоблокировались.
+     */
+    public void addFrequencies(SortedMap<Integer, Integer> frequencyDeltas) {
+        List<Map.Entry<Integer, Integer>> deltas = new ArrayList<>(frequencyDeltas.entrySet());
+        for (List<Map.Entry<Integer, Integer>> chunk : chunks(deltas)) {
+            jdbcTemplate.batchUpdate(ADD_FREQUENCY_SQL, chunk, chunk.size(), (ps, delta) -> {
+                ps.setInt(1, delta.getValue());
+                ps.setInt(2, delta.getKey());
+            });
+        }
+    }
+
+    public interface PostingConsumer {
+        void accept(int siteId, String lemma, int pageId, float rank);
+    }
+
+    /**
+     * Построчно читает все записи индекса текущих поколений сайтов, не загружая их в память целиком.
+     */
+    public void forEachPosting(PostingConsumer consumer) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streamingTemplate.setFetchSize(Integer.MIN_VALUE);
+        streamingTemplate.query(SELECT_POSTINGS_SQL, (RowCallbackHandler) rs ->
+                consumer.accept(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getFloat(4)));
+    }
+
+    /**
+     * То же, что forEachPosting, для одного поколения сайта, в том числе теневого.
+     */
+    public void forEachPosting(int siteId, PostingConsumer consumer) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streamingTemplate.setFetchSize(Integer.MIN_VALUE);
+        streamingTemplate.query(SELECT_SITE_POSTINGS_SQL, (RowCallbackHandler) rs ->
+                consumer.accept(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getFloat(4)), siteId);
+    }
+
+    /**
+     * Для каждой из страниц находит позицию первого вхождения в текст любой из лемм.
+     */
+    public Map<Integer, Integer> getFirstPositions(Collection<Integer> pageIds, Collection<String> lemmas) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        if (pageIds.isEmpty() || lemmas.isEmpty()) {
+            return positions;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("pageIds", pageIds)
+                .addValue("lemmas", lemmas);
+        namedParameterJdbcTemplate.query(SELECT_FIRST_POSITION_SQL, parameters, (RowCallbackHandler) rs -> {
+            positions.put(rs.getInt(1), rs.getInt(2));
+        });
+        return positions;
+    }
+
+    private Map<String, Integer> getLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> lemmaIds = new HashMap<>();
+        for (List<String> chunk : chunks(lemmas)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("siteId", siteId)
+                    .addValue("lemmas", chunk);
+            namedParameterJdbcTemplate.query(SELECT_LEMMA_ID_SQL, parameters, (RowCallbackHandler) rs -> {
+                lemmaIds.put(rs.getString("lemma"), rs.getInt("id"));
+            });
+        }
+        return lemmaIds;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += BATCH_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + BATCH_SIZE, list.size())));
+        }
+        return chunks;
+    }
+}
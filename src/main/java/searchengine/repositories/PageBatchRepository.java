@@ -0,0 +1,32 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.Page;
+import searchengine.utility.LemmaCounter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись пачки новых страниц вместе с их индексами в одной транзакции.
+ * Идентификаторы страниц Hibernate берёт из блока id_generator без обращения к базе,
+ * поэтому вставки страниц объединяются в пакеты (hibernate.jdbc.batch_size).
+ * Страница попадает в базу только вместе со своими индексами.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PageBatchRepository {
+    private final PageRepository pageRepository;
+    private final IndexBatchRepository indexBatchRepository;
+
+    @Transactional
+    public void savePages(List<Page> pages, List<LemmaCounter> lemmaMaps, List<Map<String, Integer>> lemmaIds) {
+        pageRepository.saveAll(pages);
+        pageRepository.flush();
+        for (int i = 0; i < pages.size(); i++) {
+            indexBatchRepository.saveLemmaMap(pages.get(i).getId(), lemmaMaps.get(i), lemmaIds.get(i));
+        }
+    }
+}
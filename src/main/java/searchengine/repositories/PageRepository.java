@@ -1,10 +1,16 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Page;
+import searchengine.model.PageSummary;
+import searchengine.model.PageTextView;
+import searchengine.model.PageValidators;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,9 +18,37 @@ public interface PageRepository extends JpaRepository<Page, Integer> {
     @Query(value = "SELECT * FROM page WHERE site_id = :site_id AND path = :path LIMIT 1", nativeQuery = true)
     Page findByPath(int site_id, String path);
 
+    @Query(value = "SELECT id FROM page WHERE site_id = :site_id AND path = :path LIMIT 1", nativeQuery = true)
+    Integer findIdByPath(int site_id, String path);
+
+    @Query(value = "SELECT id, code, etag, last_modified AS lastModified, content_hash AS contentHash FROM page " +
+            "WHERE site_id = :site_id AND path = :path LIMIT 1", nativeQuery = true)
+    PageValidators findValidatorsByPath(int site_id, String path);
+
+    @Query(value = "SELECT content FROM page WHERE id = :id", nativeQuery = true)
+    byte[] findContentById(int id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE page SET code = :code, etag = :etag, last_modified = :lastModified WHERE id = :id", nativeQuery = true)
+    void updateValidators(int id, int code, String etag, String lastModified);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE page SET code = :code, content = :content, title = :title, text = :text, " +
+            "etag = :etag, last_modified = :lastModified, content_hash = :contentHash WHERE id = :id", nativeQuery = true)
+    void updateContent(int id, int code, byte[] content, String title, String text,
+                       String etag, String lastModified, String contentHash);
+
     @Query(value = "SELECT * FROM page WHERE site_id = :site_id AND path IN :pathList", nativeQuery = true)
     List<Page> findByPathList(int site_id, List<String> pathList);
 
+    @Query(value = "SELECT id, site_id AS siteId, path, title FROM page WHERE id IN :ids", nativeQuery = true)
+    List<PageSummary> findSummariesByIds(Collection<Integer> ids);
+
+    @Query(value = "SELECT id, text FROM page WHERE id IN :ids", nativeQuery = true)
+    List<PageTextView> findTextsByIds(Collection<Integer> ids);
+
     @Query(value = "SELECT COUNT(id) FROM search_engine.page WHERE site_id = :site_id GROUP BY site_id;", nativeQuery = true)
     Integer getPageCountBySiteId(int site_id);
 }
@@ -0,0 +1,51 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Удаление сайта со всеми страницами, леммами, индексами и очередью обхода набором коротких запросов.
+ * Страницы выбираются порциями по возрастанию идентификатора, индексы и страницы
+ * удаляются по списку идентификаторов, леммы и очередь обхода - запросами с LIMIT. Каждая порция
+ * фиксируется отдельно, поэтому память и размер транзакции не зависят от размера сайта.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SitePurgeRepository {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int LEMMA_CHUNK_SIZE = 10000;
+    private static final String SELECT_PAGE_IDS_SQL = "SELECT id FROM page WHERE site_id = ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String DELETE_INDEXES_SQL = "DELETE FROM lemmaindex WHERE page_id IN (:pageIds)";
+    private static final String DELETE_PAGES_SQL = "DELETE FROM page WHERE id IN (:pageIds)";
+    private static final String DELETE_LEMMAS_SQL = "DELETE FROM lemma WHERE site_id = ? LIMIT ?";
+    private static final String DELETE_SITE_SQL = "DELETE FROM site WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final CrawlFrontierRepository crawlFrontierRepository;
+
+    public void purge(int siteId) {
+        long start = System.currentTimeMillis();
+        int pageCount = 0;
+        int lastPageId = 0;
+        List<Integer> pageIds;
+        while (!(pageIds = jdbcTemplate.queryForList(SELECT_PAGE_IDS_SQL, Integer.class, siteId, lastPageId, CHUNK_SIZE)).isEmpty()) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource("pageIds", pageIds);
+            namedParameterJdbcTemplate.update(DELETE_INDEXES_SQL, parameters);
+            namedParameterJdbcTemplate.update(DELETE_PAGES_SQL, parameters);
+            lastPageId = pageIds.get(pageIds.size() - 1);
+            pageCount += pageIds.size();
+        }
+        while (jdbcTemplate.update(DELETE_LEMMAS_SQL, siteId, LEMMA_CHUNK_SIZE) > 0) {
+            // удаляем леммы порциями, пока они не закончатся
+        }
+        crawlFrontierRepository.delete(siteId);
+        jdbcTemplate.update(DELETE_SITE_SQL, siteId);
+        System.out.println("Сайт " + siteId + " удалён (" + pageCount + " страниц) за " + (System.currentTimeMillis() - start) + " мс");
+    }
+}
@@ -1,12 +1,42 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Website;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface SiteRepository extends JpaRepository<Website, Integer> {
-    @Query(value = "SELECT * from site where url = :url LIMIT 1", nativeQuery = true)
+    @Query(value = "SELECT * from site where url = :url AND active = 1 LIMIT 1", nativeQuery = true)
     Website findByUrl(String url);
+
+    @Query(value = "SELECT * FROM site WHERE url = :url AND active = 0 LIMIT 1", nativeQuery = true)
+    Website findShadowByUrl(String url);
+
+    @Query(value = "SELECT * FROM site WHERE url = :url", nativeQuery = true)
+    List<Website> findAllByUrl(String url);
+
+    @Query(value = "SELECT * FROM site WHERE active = 1 ORDER BY url", nativeQuery = true)
+    List<Website> findAllActive();
+
+    @Query(value = "SELECT id FROM site WHERE active = 1", nativeQuery = true)
+    List<Integer> findActiveIds();
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE site SET status_time = :statusTime WHERE id = :id", nativeQuery = true)
+    void updateStatusTime(int id, LocalDateTime statusTime);
+
+    /**
+     * Одним запросом делает поколение siteId текущим, а остальные поколения сайта - теневыми.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE site SET active = (id = :siteId) WHERE url = :url", nativeQuery = true)
+    void activate(String url, int siteId);
 }
@@ -0,0 +1,107 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.ReindexMode;
+import searchengine.repositories.CrawlFrontierRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Контрольные точки обхода: найденные и обработанные адреса копятся в очереди
+ * в порядке событий и периодически записываются в crawl_frontier одним пакетом.
+ * Адреса, найденные на странице, попадают в очередь раньше отметки об обработке
+ * самой страницы, поэтому после сбоя сохранённая очередь не теряет ссылок
+ * обработанных страниц. Если сайт обойдён полностью, его очередь удаляется.
+ * Очередь нужна только для продолжения обхода, поэтому пишется лишь в режиме resume:
+ * в остальных режимах каждая страница стоила бы двух лишних строк в crawl_frontier.
+ */
+@Component
+@RequiredArgsConstructor
+public class CrawlCheckpoint {
+    private final CrawlFrontierRepository crawlFrontierRepository;
+    private final CrawlMetrics crawlMetrics;
+    private final CrawlSettings crawlSettings;
+    private final Queue<CrawlFrontierRepository.Entry> entries = new ConcurrentLinkedQueue<>();
+    private List<CrawlFrontierRepository.Entry> unsaved = new ArrayList<>();
+
+    public void offer(int siteId, String address) {
+        if (isEnabled()) {
+            entries.add(new CrawlFrontierRepository.Entry(siteId, address, CrawlFrontierRepository.PENDING));
+        }
+    }
+
+    public void complete(int siteId, String address) {
+        if (isEnabled()) {
+            entries.add(new CrawlFrontierRepository.Entry(siteId, address, CrawlFrontierRepository.DONE));
+        }
+    }
+
+    private boolean isEnabled() {
+        return crawlSettings.getReindexMode() == ReindexMode.RESUME;
+    }
+
+    /**
+     * @return true, если у поколения сайта есть сохранённая очередь прерванного обхода
+     */
+    public boolean exists(int siteId) {
+        flush();
+        return crawlFrontierRepository.exists(siteId);
+    }
+
+    /**
+     * Передаёт сохранённую очередь сайта: адреса, которые ещё не обработаны, и обработанные.
+     */
+    public void restore(int siteId, CrawlFrontierRepository.EntryConsumer consumer) {
+        flush();
+        crawlFrontierRepository.forEach(siteId, consumer);
+    }
+
+    /**
+     * Удаляет очередь обойдённого поколения сайта.
+     */
+    public synchronized void delete(int siteId) {
+        discard(siteId);
+        crawlFrontierRepository.delete(siteId);
+    }
+
+    /**
+     * Отбрасывает ещё не записанные адреса поколения сайта. Вызывается перед удалением
+     * его строк из crawl_frontier: иначе следующая запись вернула бы туда строки
+     * уже удалённого поколения. Запись, начатая до вызова, успевает завершиться.
+     */
+    public synchronized void discard(int siteId) {
+        CrawlFrontierRepository.Entry entry;
+        while ((entry = entries.poll()) != null) {
+            unsaved.add(entry);
+        }
+        unsaved.removeIf(queued -> queued.getSiteId() == siteId);
+    }
+
+    @Scheduled(fixedDelayString = "${crawl-settings.checkpoint-interval:10000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<CrawlFrontierRepository.Entry> batch = unsaved;
+        unsaved = new ArrayList<>();
+        CrawlFrontierRepository.Entry entry;
+        while ((entry = entries.poll()) != null) {
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        crawlMetrics.recordBatch("crawl_frontier", batch.size());
+        try {
+            crawlFrontierRepository.save(batch);
+        } catch (RuntimeException e) {
+            unsaved = batch;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package searchengine.services;
+
+import searchengine.config.CrawlSettings;
+import searchengine.config.ExecutorMode;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Выполняет обход: адреса берутся из очереди обхода, загрузка страниц идёт
+ * в пуле ввода-вывода, а разбор, лемматизация и запись в базу - в пуле
+ * по числу ядер процессора. Число одновременных загрузок ограничено семафором;
+ * разрешение возвращается только после обработки страницы, поэтому загруженные,
+ * но ещё не обработанные страницы не копятся в очереди пула обработки без ограничения.
+ */
+public class CrawlExecutor {
+    private final CrawlSettings crawlSettings;
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService processExecutor;
+    private final Semaphore fetchPermits;
+    private final AtomicInteger activeFetches = new AtomicInteger();
+    private final AtomicInteger activeProcesses = new AtomicInteger();
+    private Thread dispatcher;
+
+    public interface Task {
+        /**
+         * Загружает страницу; выполняется в пуле ввода-вывода.
+         * @return false, если страницу не нужно обрабатывать дальше
+         */
+        boolean fetch();
+
+        /**
+         * Обрабатывает загруженную страницу; выполняется в пуле по числу ядер.
+         */
+        void process();
+    }
+
+    public CrawlExecutor(CrawlSettings crawlSettings) {
+        this.crawlSettings = crawlSettings;
+        int maxFetches = crawlSettings.getExecutor() == ExecutorMode.FIXED ? crawlSettings.getThreads() : crawlSettings.getMaxFetches();
+        fetchPermits = new Semaphore(Math.max(maxFetches, 1));
+        fetchExecutor = createFetchExecutor();
+        processExecutor = Executors.newFixedThreadPool(Math.max(crawlSettings.getCpuThreads(), 1));
+    }
+
+    private ExecutorService createFetchExecutor() {
+        return switch (crawlSettings.getExecutor()) {
+            case VIRTUAL -> createVirtualExecutor();
+            case IO -> Executors.newCachedThreadPool();
+            case FIXED -> Executors.newFixedThreadPool(Math.max(crawlSettings.getThreads(), 1));
+        };
+    }
+
+    /**
+     * Виртуальные потоки появились в Java 21, поэтому пул создаётся через отражение;
+     * на более старой JVM вместо него используется расширяемый пул ввода-вывода.
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Виртуальные потоки недоступны, используется пул ввода-вывода");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Запускает поток, раздающий адреса из очереди обхода.
+     * @param taskFactory создаёт задачу обработки для адреса
+     * @param onComplete вызывается после завершения обработки адреса
+     */
+    public void start(CrawlFrontier frontier, Function<String, Task> taskFactory, Consumer<String> onComplete) {
+        dispatcher = new Thread(() -> {
+            while (true) {
+                String address;
+                try {
+                    address = frontier.take();
+                    if (address == null) {
+                        return;
+                    }
+                    fetchPermits.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                fetchExecutor.execute(() -> fetch(address, taskFactory, onComplete));
+            }
+        }, "crawl-dispatcher");
+        dispatcher.start();
+    }
+
+    private void fetch(String address, Function<String, Task> taskFactory, Consumer<String> onComplete) {
+        Task task = null;
+        activeFetches.incrementAndGet();
+        try {
+            task = taskFactory.apply(address);
+            if (task == null || !task.fetch()) {
+                task = null;
+            }
+        } catch (Exception e) {
+            task = null;
+            e.printStackTrace();
+        } finally {
+            activeFetches.decrementAndGet();
+        }
+        if (task == null) {
+            fetchPermits.release();
+            onComplete.accept(address);
+            return;
+        }
+        Task fetchedTask = task;
+        processExecutor.execute(() -> {
+            activeProcesses.incrementAndGet();
+            try {
+                fetchedTask.process();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                activeProcesses.decrementAndGet();
+                fetchPermits.release();
+                onComplete.accept(address);
+            }
+        });
+    }
+
+    /**
+     * @return число задач, которые сейчас загружают страницу
+     */
+    public int getActiveFetches() {
+        return activeFetches.get();
+    }
+
+    /**
+     * @return число задач, которые сейчас обрабатывают загруженную страницу
+     */
+    public int getActiveProcesses() {
+        return activeProcesses.get();
+    }
+
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        fetchExecutor.shutdown();
+        processExecutor.shutdown();
+    }
+}
@@ -0,0 +1,170 @@
+package searchengine.services;
+
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Очередь обхода страниц, разбитая по сайтам: очередь сайта определяется источником
+ * адреса (схема, хост и порт), поэтому сайты одного хоста на разных портах не смешиваются.
+ * Адреса выдаются в порядке обхода в ширину; для каждого хоста ограничено
+ * число одновременно загружаемых страниц и выдерживается пауза между запросами.
+ * Повторные адреса отбрасываются в момент постановки в очередь.
+ */
+public class CrawlFrontier {
+    private final int maxConcurrencyPerHost;
+    private final long crawlDelay;
+    private final Map<String, HostQueue> hostQueues = new LinkedHashMap<>();
+    private int nextHost;
+    private boolean closed;
+
+    public CrawlFrontier(int maxConcurrencyPerHost, long crawlDelay) {
+        this.maxConcurrencyPerHost = Math.max(maxConcurrencyPerHost, 1);
+        this.crawlDelay = Math.max(crawlDelay, 0);
+    }
+
+    /**
+     * Возвращает источник адреса в виде "схема://хост[:порт]": схема и хост приводятся
+     * к нижнему регистру, данные пользователя отбрасываются, а порт по умолчанию
+     * для схемы (80 или 443) не указывается, так что http://site.ru:80 и http://site.ru
+     * считаются одним сайтом.
+     * @return null, если в адресе нет схемы или хоста
+     */
+    public static String getOrigin(URI uri) {
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return null;
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        int defaultPort = scheme.equals("https") ? 443 : 80;
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        return scheme + "://" + host + (port == -1 || port == defaultPort ? "" : ":" + port);
+    }
+
+    public static String getOrigin(String address) {
+        try {
+            return getOrigin(new URI(address));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Добавляет адрес в очередь хоста.
+     * @return false, если адрес уже встречался при текущем обходе
+     */
+    public synchronized boolean offer(String address) {
+        String host = getOrigin(address);
+        if (closed || host == null) {
+            return false;
+        }
+        HostQueue hostQueue = hostQueues.computeIfAbsent(host, HostQueue::new);
+        if (!hostQueue.seen.add(address)) {
+            return false;
+        }
+        hostQueue.pending.add(address);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Отмечает адрес как уже обработанный при продолжении прерванного обхода:
+     * в очередь он больше не попадёт.
+     */
+    public synchronized void markSeen(String address) {
+        String host = getOrigin(address);
+        if (!closed && host != null) {
+            hostQueues.computeIfAbsent(host, HostQueue::new).seen.add(address);
+        }
+    }
+
+    /**
+     * Возвращает следующий адрес, который можно загрузить, не нарушая ограничений хоста.
+     * Блокируется, пока такого адреса нет; после закрытия очереди возвращает null.
+     */
+    public synchronized String take() throws InterruptedException {
+        while (!closed) {
+            long now = System.currentTimeMillis();
+            long waitTime = Long.MAX_VALUE;
+            List<HostQueue> queues = new ArrayList<>(hostQueues.values());
+            for (int i = 0; i < queues.size(); i++) {
+                HostQueue hostQueue = queues.get((nextHost + i) % queues.size());
+                if (hostQueue.pending.isEmpty() || hostQueue.inFlight >= maxConcurrencyPerHost) {
+                    continue;
+                }
+                if (hostQueue.nextFetchTime <= now) {
+                    nextHost = (nextHost + i + 1) % queues.size();
+                    hostQueue.inFlight++;
+                    hostQueue.nextFetchTime = now + crawlDelay;
+                    return hostQueue.pending.poll();
+                }
+                waitTime = Math.min(waitTime, hostQueue.nextFetchTime - now);
+            }
+            if (waitTime == Long.MAX_VALUE) {
+                wait();
+            } else {
+                wait(waitTime);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Отмечает завершение обработки адреса, полученного из take().
+     * @return true, если у хоста не осталось ни ожидающих, ни загружаемых страниц
+     */
+    public synchronized boolean complete(String address) {
+        String host = getOrigin(address);
+        HostQueue hostQueue = hostQueues.get(host);
+        if (hostQueue == null) {
+            return false;
+        }
+        hostQueue.inFlight--;
+        notifyAll();
+        if (hostQueue.inFlight > 0 || !hostQueue.pending.isEmpty()) {
+            return false;
+        }
+        hostQueues.remove(host);
+        return true;
+    }
+
+    public synchronized int size() {
+        return hostQueues.values().stream().mapToInt(hostQueue -> hostQueue.pending.size()).sum();
+    }
+
+    /**
+     * Удаляет все ожидающие адреса; загружаемые страницы завершаются обычным образом.
+     * Хосты без загружаемых страниц возвращаются как завершённые.
+     */
+    public synchronized List<String> clear() {
+        List<String> drainedHosts = new ArrayList<>();
+        Iterator<HostQueue> iterator = hostQueues.values().iterator();
+        while (iterator.hasNext()) {
+            HostQueue hostQueue = iterator.next();
+            hostQueue.pending.clear();
+            if (hostQueue.inFlight == 0) {
+                drainedHosts.add(hostQueue.host);
+                iterator.remove();
+            }
+        }
+        notifyAll();
+        return drainedHosts;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        hostQueues.clear();
+        notifyAll();
+    }
+
+    private static class HostQueue {
+        private final String host;
+        private final Queue<String> pending = new ArrayDeque<>();
+        private final Set<String> seen = new HashSet<>();
+        private int inFlight;
+        private long nextFetchTime;
+
+        private HostQueue(String host) {
+            this.host = host;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Метрики обхода для Micrometer (доступны через /actuator/metrics и /actuator/prometheus).
+ * По ним видно, во что упирается обход: время загрузки - сеть, разбора
+ * и лемматизации - процессор, записи - база данных.
+ * <ul>
+ *     <li>crawl.pages.fetched - загруженные страницы по сайтам (скорость - rate в Prometheus);</li>
+ *     <li>crawl.http.responses - ответы по кодам состояния, error - ошибки соединения;</li>
+ *     <li>crawl.phase - гистограммы времени этапов fetch, parse, lemmatize, persist;</li>
+ *     <li>crawl.frontier.size - адреса в очереди обхода;</li>
+ *     <li>crawl.executor.active - занятые задачи пулов загрузки и обработки;</li>
+ *     <li>crawl.db.batch.size - размеры пакетов записи в таблицы page, lemmaindex и lemma.</li>
+ * </ul>
+ */
+@Component
+public class CrawlMetrics {
+    public static final String FETCH = "fetch";
+    public static final String PARSE = "parse";
+    public static final String LEMMATIZE = "lemmatize";
+    public static final String PERSIST = "persist";
+
+    private final MeterRegistry registry;
+    private volatile CrawlFrontier frontier;
+    private volatile CrawlExecutor executor;
+
+    public CrawlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("crawl.frontier.size", this, metrics -> {
+                    CrawlFrontier current = metrics.frontier;
+                    return current == null ? 0 : current.size();
+                })
+                .description("Адреса в очереди обхода")
+                .register(registry);
+        Gauge.builder("crawl.executor.active", this, metrics -> {
+                    CrawlExecutor current = metrics.executor;
+                    return current == null ? 0 : current.getActiveFetches();
+                })
+                .tag("pool", "fetch")
+                .register(registry);
+        Gauge.builder("crawl.executor.active", this, metrics -> {
+                    CrawlExecutor current = metrics.executor;
+                    return current == null ? 0 : current.getActiveProcesses();
+                })
+                .tag("pool", "process")
+                .register(registry);
+    }
+
+    /**
+     * Подключает очередь и исполнитель текущего обхода; null - обход завершён.
+     */
+    public void bind(CrawlFrontier frontier, CrawlExecutor executor) {
+        this.frontier = frontier;
+        this.executor = executor;
+    }
+
+    public void recordFetched(String site) {
+        Counter.builder("crawl.pages.fetched")
+                .tag("site", String.valueOf(site))
+                .register(registry)
+                .increment();
+    }
+
+    public void recordResponse(String site, String status) {
+        Counter.builder("crawl.http.responses")
+                .tag("site", String.valueOf(site))
+                .tag("status", status)
+                .register(registry)
+                .increment();
+    }
+
+    public void record(String phase, String site, long nanos) {
+        timer(phase, site).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T record(String phase, String site, Supplier<T> action) {
+        return timer(phase, site).record(action);
+    }
+
+    public void recordBatch(String table, int size) {
+        DistributionSummary.builder("crawl.db.batch.size")
+                .tag("table", table)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(size);
+    }
+
+    private Timer timer(String phase, String site) {
+        return Timer.builder("crawl.phase")
+                .tag("phase", phase)
+                .tag("site", String.valueOf(site))
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
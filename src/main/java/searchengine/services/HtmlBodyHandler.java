@@ -0,0 +1,181 @@
+package searchengine.services;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обработчик тела ответа для обхода сайтов. Решение о чтении тела принимается по заголовкам:
+ * тело ответов с кодом не 2xx и ответов, не являющихся HTML-документом, не читается,
+ * загрузка прерывается, а телом считается null. Тело HTML-страницы декодируется
+ * по мере поступления частями в кодировке из Content-Type (по умолчанию UTF-8)
+ * и обрезается после maxSize байт, так что память на одну загрузку ограничена.
+ */
+public class HtmlBodyHandler implements HttpResponse.BodyHandler<String> {
+    private static final Pattern CHARSET = Pattern.compile("charset=\"?([^\";\\s]+)", Pattern.CASE_INSENSITIVE);
+
+    private final long maxSize;
+
+    public HtmlBodyHandler(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        int statusCode = responseInfo.statusCode();
+        Optional<String> contentType = responseInfo.headers().firstValue("content-type");
+        if (statusCode < 200 || statusCode >= 300 || contentType.isEmpty() || !isHtml(contentType.get())) {
+            return new RejectingSubscriber();
+        }
+        return new DecodingSubscriber(getCharset(contentType.get()), maxSize);
+    }
+
+    public static boolean isHtml(String contentType) {
+        return contentType.matches("text/html.*");
+    }
+
+    private static Charset getCharset(String contentType) {
+        Matcher matcher = CHARSET.matcher(contentType);
+        if (matcher.find()) {
+            try {
+                return Charset.forName(matcher.group(1));
+            } catch (IllegalArgumentException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static class RejectingSubscriber implements HttpResponse.BodySubscriber<String> {
+        @Override
+        public CompletionStage<String> getBody() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Декодирует тело по частям: байты многобайтного символа, разрезанного
+     * границей части, переносятся в следующую часть, а при обрезке тела отбрасываются.
+     */
+    private static class DecodingSubscriber implements HttpResponse.BodySubscriber<String> {
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final CharsetDecoder decoder;
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private final StringBuilder text = new StringBuilder();
+        private long remaining;
+        private ByteBuffer leftover;
+        private Flow.Subscription subscription;
+
+        private DecodingSubscriber(Charset charset, long maxSize) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.remaining = maxSize;
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                ByteBuffer input = item;
+                if (input.remaining() > remaining) {
+                    input = item.slice().limit((int) remaining);
+                }
+                remaining -= input.remaining();
+                decode(input, false);
+                if (remaining <= 0) {
+                    subscription.cancel();
+                    leftover = null;
+                    complete();
+                    return;
+                }
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        private void complete() {
+            if (body.isDone()) {
+                return;
+            }
+            decode(ByteBuffer.allocate(0), true);
+            while (decoder.flush(chars).isOverflow()) {
+                drain();
+            }
+            drain();
+            body.complete(text.toString());
+        }
+
+        private void decode(ByteBuffer input, boolean endOfInput) {
+            if (leftover != null) {
+                input = ByteBuffer.allocate(leftover.remaining() + input.remaining()).put(leftover).put(input).flip();
+                leftover = null;
+            }
+            CoderResult result;
+            do {
+                result = decoder.decode(input, chars, endOfInput);
+                drain();
+            } while (result.isOverflow());
+            if (input.hasRemaining()) {
+                leftover = ByteBuffer.allocate(input.remaining()).put(input).flip();
+            }
+        }
+
+        private void drain() {
+            chars.flip();
+            text.append(chars);
+            chars.clear();
+        }
+    }
+}
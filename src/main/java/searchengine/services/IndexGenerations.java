@@ -0,0 +1,36 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики поколений индекса по сайтам. Индексатор увеличивает счётчик сайта
+ * при каждом изменении его данных; закешированные результаты поиска,
+ * построенные на другом поколении, считаются устаревшими.
+ */
+@Component
+public class IndexGenerations {
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public void increment(int siteId) {
+        generations.computeIfAbsent(siteId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long get(int siteId) {
+        AtomicLong generation = generations.get(siteId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    public Map<Integer, Long> snapshot(Collection<Integer> siteIds) {
+        Map<Integer, Long> snapshot = new HashMap<>();
+        for (int siteId : siteIds) {
+            snapshot.put(siteId, get(siteId));
+        }
+        return snapshot;
+    }
+}
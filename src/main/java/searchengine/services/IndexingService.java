@@ -6,5 +6,5 @@ public interface IndexingService {
     IndexResponse stopIndexing();
     IndexResponse startIndexing();
     IndexResponse indexPage(String path);
-    IndexResponse search(String query, String site, String offset, String limit);
+    IndexResponse search(String query, String site, String offset, String limit, boolean debug);
 }
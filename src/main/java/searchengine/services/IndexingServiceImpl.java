@@ -6,36 +6,43 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import searchengine.config.CrawlSettings;
+import searchengine.config.FieldWeights;
+import searchengine.config.ReindexMode;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
-import searchengine.config.UserSettings;
 import searchengine.dto.IndexErrorResponse;
 import searchengine.dto.IndexResponse;
+import searchengine.dto.search.SearchDebug;
 import searchengine.dto.search.SearchItem;
 import searchengine.dto.search.SearchResponse;
-import searchengine.model.Index;
-import searchengine.model.Lemma;
 import searchengine.model.Page;
+import searchengine.model.PageSummary;
+import searchengine.model.PageValidators;
 import searchengine.model.StatusType;
 import searchengine.model.Website;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.CrawlFrontierRepository;
+import searchengine.repositories.IndexBatchRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.repositories.SitePurgeRepository;
+import searchengine.utility.ContentHash;
+import searchengine.utility.HtmlTextExtractor;
+import searchengine.utility.LemmaCounter;
+import searchengine.utility.PageText;
 import searchengine.utility.TextAnalyzer;
+import searchengine.utility.TopKCollector;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpHeaders;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -45,268 +52,377 @@ public class IndexingServiceImpl implements IndexingService {
     private final SitesList siteList;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
-    private final UserSettings userSettings;
+    private final SitePurgeRepository sitePurgeRepository;
+    private final IndexBatchRepository indexBatchRepository;
+    private final CrawlSettings crawlSettings;
+    private final PageFetcher pageFetcher;
+    private final FieldWeights fieldWeights;
+    private final InvertedIndex invertedIndex;
+    private final IndexGenerations indexGenerations;
+    private final SearchCache searchCache;
+    private final PageContentStore pageContentStore;
+    private final PageWriter pageWriter;
+    private final LemmaDictionary lemmaDictionary;
+    private final CrawlMetrics crawlMetrics;
+    private final SearchMetrics searchMetrics;
+    private final CrawlCheckpoint crawlCheckpoint;
     @Value("${search.frequency-limit}")
     private int frequencyLimit;
-    public ForkJoinPool pool;
-    private Vector<Inspector> runningTasksVector = new Vector<>();
+    @Value("${search.cache-depth:100}")
+    private int searchCacheDepth;
+    @Value("${search.max-limit:500}")
+    private int searchMaxLimit;
+    private CrawlFrontier frontier;
+    private CrawlExecutor crawlExecutor;
+    private final Map<String, SiteCrawl> runningCrawls = new ConcurrentHashMap<>();
+    private final ExecutorService purgeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "generation-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
     AtomicBoolean stopRunning = new AtomicBoolean(false);
 
+    /**
+     * В режиме shadow сайт, у которого уже есть проиндексированное поколение, обходится
+     * заново в новое теневое поколение: поиск продолжает работать по текущему,
+     * а по окончании обхода поколения меняются местами (см. finishCrawl).
+     * В режиме incremental обход идёт по текущему поколению, и сохранённые страницы
+     * обновляются, только если изменились. В режиме delete данные сайта удаляются перед обходом.
+     * В режиме resume прерванный обход поколения продолжается по сохранённой очереди (см. resumeCrawl).
+     */
     public IndexResponse startIndexing() {
         for (Site site : siteList.getSites()) {
+            if (isIndexing(site.getUrl())) {
+                return new IndexErrorResponse(false, "Индексация уже запущена");
+            }
+            ReindexMode reindexMode = crawlSettings.getReindexMode();
+            if (reindexMode == ReindexMode.RESUME) {
+                Website interrupted = findInterrupted(site.getUrl());
+                if (interrupted != null) {
+                    resumeCrawl(interrupted);
+                    continue;
+                }
+            }
             Website website = siteRepository.findByUrl(site.getUrl());
-            if (website != null) {
-                if (website.getStatus().equals(StatusType.INDEXING)) {
-                    return new IndexErrorResponse(false, "Индексация уже запущена");
+            if (website != null && reindexMode != ReindexMode.DELETE) {
+                for (Website generation : siteRepository.findAllByUrl(site.getUrl())) {
+                    if (!generation.isActive()) {
+                        purgeInBackground(generation.getId());
+                    }
+                }
+                if (reindexMode == ReindexMode.INCREMENTAL) {
+                    startCrawl(website, "/", true, true);
                 } else {
-                    delete(website);
+                    startCrawl(createWebsite(site, false), "/", true, false);
+                }
+            } else {
+                for (Website generation : siteRepository.findAllByUrl(site.getUrl())) {
+                    delete(generation);
                 }
+                startCrawl(createWebsite(site, true), "/", true, false);
             }
-            Thread tread = new Thread(new Starter(site, "/", true));
-            tread.start();
         }
         return new IndexResponse(true);
     }
 
+    /**
+     * @return последнее поколение сайта, обход которого был прерван и может быть продолжен
+     */
+    private Website findInterrupted(String url) {
+        return siteRepository.findAllByUrl(url).stream()
+                .filter(website -> website.getStatus() == StatusType.FAILED)
+                .filter(website -> crawlCheckpoint.exists(website.getId()))
+                .max(Comparator.comparingInt(Website::getId))
+                .orElse(null);
+    }
+
+    /**
+     * Обход, который шёл при остановке приложения, продолжить в том же процессе нельзя:
+     * такие поколения помечаются прерванными, и режим resume может их продолжить.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterrupted() {
+        for (Website website : siteRepository.findAll()) {
+            if (website.getStatus() == StatusType.INDEXING) {
+                website.setStatus(StatusType.FAILED);
+                website.setStatusTime(LocalDateTime.now());
+                website.setLastError("Индексация прервана перезапуском приложения");
+                siteRepository.save(website);
+            }
+        }
+    }
+
+    private boolean isIndexing(String url) {
+        return siteRepository.findAllByUrl(url).stream()
+                .anyMatch(website -> website.getStatus() == StatusType.INDEXING);
+    }
+
     private void delete(Website website) {
-        List<Index> indexesForDelete = indexRepository.findByWebsiteId(website.getId());
-        indexRepository.deleteAll(indexesForDelete);
-        siteRepository.delete(website);
+        crawlCheckpoint.discard(website.getId());
+        sitePurgeRepository.purge(website.getId());
+        lemmaDictionary.removeSite(website.getId());
+        invertedIndex.removeSite(website.getId());
+        indexGenerations.increment(website.getId());
+    }
+
+    /**
+     * Удаляет поколение сайта в фоновом потоке; поиск к этому моменту его уже не видит.
+     */
+    private void purgeInBackground(int websiteId) {
+        purgeExecutor.execute(() -> {
+            invertedIndex.removeSite(websiteId);
+            indexGenerations.increment(websiteId);
+            lemmaDictionary.removeSite(websiteId);
+            crawlCheckpoint.discard(websiteId);
+            sitePurgeRepository.purge(websiteId);
+        });
+    }
+
+    private Website createWebsite(Site site, boolean active) {
+        Website website = new Website();
+        website.setName(site.getName());
+        website.setUrl(site.getUrl());
+        website.setStatus(StatusType.INDEXING);
+        website.setStatusTime(LocalDateTime.now());
+        website.setActive(active);
+        siteRepository.save(website);
+        if (active) {
+            invertedIndex.activate(website.getId());
+        }
+        return website;
     }
 
     @RequiredArgsConstructor
-    private class Starter implements Runnable {
-        private final Site site;
-        private final String path;
+    private static class SiteCrawl {
+        private final int websiteId;
         private final boolean includeChildPage;
+        private final boolean incremental;
+    }
 
-        @Override
-        public void run() {
-            try {
-                Website website = siteRepository.findByUrl(site.getUrl());
-                if (website == null) {
-                    website = new Website();
-                    website.setName(site.getName());
-                    website.setUrl(site.getUrl());
-                }
-                website.setStatus(StatusType.INDEXING);
-                website.setStatusTime(LocalDateTime.now());
-                siteRepository.save(website);
+    private synchronized void startCrawl(Website website, String path, boolean includeChildPage, boolean incremental) {
+        if (includeChildPage) {
+            crawlCheckpoint.delete(website.getId());
+        }
+        String address = website.getUrl() + path;
+        String origin = beginCrawl(website, address, includeChildPage, incremental);
+        if (origin == null || !offer(website.getId(), includeChildPage, address)) {
+            finishCrawl(origin, website.getId());
+        }
+    }
 
-                if (pool == null) {
-                    pool = new ForkJoinPool();
-                    stopRunning.set(false);
-                }
-                Inspector task = new Inspector(website.getUrl() + path, includeChildPage);
-                runningTasksVector.add(task);
-                pool.invoke(task);
-                runningTasksVector.remove(task);
-                if (!stopRunning.get()) {
-                    website.setStatus(StatusType.INDEXED);
-                }
-                siteRepository.save(website);
-                if (runningTasksVector.size() == 0 && pool != null) {
-                    pool.shutdown();
-                    pool = null;
-                    System.out.println("Задача остановлена");
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * Продолжает прерванный обход поколения сайта: обработанные адреса из сохранённой
+     * очереди не загружаются повторно, остальные ставятся в очередь заново. Страницы,
+     * сохранённые до остановки, проверяются условными запросами, как в режиме incremental.
+     */
+    private synchronized void resumeCrawl(Website website) {
+        website.setLastError(null);
+        invertedIndex.loadSite(website.getId());
+        String origin = beginCrawl(website, website.getUrl() + "/", true, true);
+        if (origin == null) {
+            finishCrawl(null, website.getId());
+            return;
+        }
+        List<String> pending = new ArrayList<>();
+        List<String> done = new ArrayList<>();
+        crawlCheckpoint.restore(website.getId(), (address, state) ->
+                (state == CrawlFrontierRepository.DONE ? done : pending).add(address));
+        System.out.println("Обход " + website.getUrl() + " продолжается: обработано " + done.size()
+                + " адресов, в очереди " + pending.size());
+        boolean offered = false;
+        if (!pending.isEmpty()) {
+            done.forEach(frontier::markSeen);
+            for (String address : pending) {
+                offered |= frontier.offer(address);
+            }
+        }
+        if (!offered) {
+            finishCrawl(origin, website.getId());
+        }
+    }
+
+    /**
+     * Помечает поколение сайта индексируемым, при необходимости запускает обход и регистрирует сайт в нём.
+     * @return источник сайта (схема, хост и порт) или null, если адрес сайта некорректен
+     */
+    private String beginCrawl(Website website, String address, boolean includeChildPage, boolean incremental) {
+        website.setStatus(StatusType.INDEXING);
+        website.setStatusTime(LocalDateTime.now());
+        siteRepository.save(website);
+
+        if (crawlExecutor == null) {
+            stopRunning.set(false);
+            frontier = new CrawlFrontier(crawlSettings.getMaxConcurrencyPerHost(), crawlSettings.getCrawlDelay());
+            crawlExecutor = new CrawlExecutor(crawlSettings);
+            crawlExecutor.start(frontier, this::createInspector, this::completeAddress);
+            crawlMetrics.bind(frontier, crawlExecutor);
+        }
+        String origin = CrawlFrontier.getOrigin(address);
+        if (origin != null) {
+            runningCrawls.put(origin, new SiteCrawl(website.getId(), includeChildPage, incremental));
+        }
+        return origin;
+    }
+
+    /**
+     * Ставит адрес в очередь обхода; при обходе сайта адрес записывается и в сохранённую очередь.
+     */
+    private boolean offer(int websiteId, boolean includeChildPage, String address) {
+        if (!frontier.offer(address)) {
+            return false;
+        }
+        if (includeChildPage) {
+            crawlCheckpoint.offer(websiteId, address);
+        }
+        return true;
+    }
+
+    private synchronized void finishCrawl(String origin, int websiteId) {
+        if (origin != null) {
+            runningCrawls.remove(origin);
+        }
+        pageWriter.flush();
+        lemmaDictionary.flush();
+        Website website = siteRepository.findById(websiteId).orElse(null);
+        if (website != null && !stopRunning.get()) {
+            website.setStatus(StatusType.INDEXED);
+            website.setStatusTime(LocalDateTime.now());
+            siteRepository.save(website);
+            crawlCheckpoint.delete(websiteId);
+            if (!website.isActive()) {
+                activate(website);
             }
         }
+        if (runningCrawls.isEmpty() && crawlExecutor != null) {
+            frontier.close();
+            crawlExecutor.shutdown();
+            crawlExecutor = null;
+            crawlMetrics.bind(null, null);
+            System.out.println("Задача остановлена");
+        }
+    }
+
+    /**
+     * Делает теневое поколение сайта текущим: сначала в базе одним запросом, затем
+     * в обратном индексе. Прежнее поколение удаляется в фоне.
+     */
+    private void activate(Website shadow) {
+        Website current = siteRepository.findByUrl(shadow.getUrl());
+        siteRepository.activate(shadow.getUrl(), shadow.getId());
+        shadow.setActive(true);
+        invertedIndex.replace(current == null ? null : current.getId(), shadow.getId());
+        indexGenerations.increment(shadow.getId());
+        if (current != null) {
+            indexGenerations.increment(current.getId());
+            purgeInBackground(current.getId());
+        }
+        System.out.println("Поколение " + shadow.getId() + " сайта " + shadow.getUrl() + " стало текущим");
+    }
+
+    private Inspector createInspector(String address) {
+        SiteCrawl crawl = runningCrawls.get(CrawlFrontier.getOrigin(address));
+        return crawl == null ? null : new Inspector(address, crawl.websiteId, crawl.includeChildPage, crawl.incremental);
+    }
+
+    private void completeAddress(String address) {
+        String origin = CrawlFrontier.getOrigin(address);
+        SiteCrawl crawl = runningCrawls.get(origin);
+        if (frontier.complete(address) && crawl != null) {
+            finishCrawl(origin, crawl.websiteId);
+        }
     }
 
     @RequiredArgsConstructor
-    public class Inspector extends RecursiveAction {
+    public class Inspector implements CrawlExecutor.Task {
         private final String address;
+        private final int websiteId;
         private final boolean includeChildPage;
+        private final boolean incremental;
+        private URI baseURI;
+        private Website website;
+        private PageValidators validators;
+        private PageFetcher.FetchedPage fetchedPage;
 
         @Override
-        protected void compute() {
+        public boolean fetch() {
+            boolean fetched = fetchPage();
+            if (!fetched && !stopRunning.get()) {
+                markDone();
+            }
+            return fetched;
+        }
+
+        private boolean fetchPage() {
             if (stopRunning.get()) {
                 System.out.println("Поток остановлен");
-                return;
+                return false;
             }
             System.out.println(address);
-            URI baseURI = checkPageAddress(address);
+            baseURI = checkPageAddress(address);
             if (baseURI == null) {
-                return;
+                return false;
             }
-            Website website = siteRepository.findByUrl(baseURI.getScheme() + "://" + baseURI.getHost());
-            if (website == null) {
-                return;
+            website = siteRepository.findById(websiteId).orElse(null);
+            if (website == null || !CrawlFrontier.getOrigin(baseURI).equals(CrawlFrontier.getOrigin(website.getUrl()))) {
+                return false;
+            }
+            validators = pageRepository.findValidatorsByPath(website.getId(), baseURI.getPath());
+            if (validators == null) {
+                fetchedPage = pageFetcher.fetch(baseURI);
+            } else if (incremental) {
+                fetchedPage = pageFetcher.fetch(baseURI, validators.getEtag(), validators.getLastModified());
+            } else {
+                return false;
             }
-            Page page = savePage(baseURI, website);
-            if (page == null) {
+            return fetchedPage != null;
+        }
+
+        @Override
+        public void process() {
+            if (stopRunning.get()) {
+                System.out.println("Поток остановлен");
                 return;
             }
-            HashMap<String, Integer> lemmaMap = TextAnalyzer.getLemmas(TextAnalyzer.getTextWithoutHtmlTags(page.getContent()));
-            saveLemmaMap(lemmaMap, website.getId(), page.getId());
-            if (!includeChildPage) {
+            if (validators == null) {
+                Document document = parse();
+                PageText pageText = extract(document);
+                if (stopRunning.get()) {
+                    System.out.println("Поток остановлен");
+                    return;
+                }
+                offerLinks(document);
+                savePage(pageText);
                 return;
             }
+            Document document = updatePage();
             if (stopRunning.get()) {
                 System.out.println("Поток остановлен");
                 return;
             }
-            Set<String> inspectSet;
-            Document document = null;
-            try {
-                document = Jsoup.connect(address).userAgent(userSettings.getUserAgent()).referrer(userSettings.getReferrer()).get();
-                inspectSet = getHrefAddresses(baseURI, document);
-            } catch (IOException e) {
+            if (document != null) {
+                offerLinks(document);
+            }
+            markDone();
+        }
+
+        private void offerLinks(Document document) {
+            if (!includeChildPage) {
                 return;
             }
-            List<Page> existingPageList = pageRepository.findByPathList(website.getId(), inspectSet.stream().toList());
-            existingPageList.stream().forEach(e -> inspectSet.remove(e.getPath()));
-            for (String childAddress : inspectSet) {
-                if (stopRunning.get()) {
-                    System.out.println("Поток остановлен");
-                    return;
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                    continue;
-                }
-                Inspector task = new Inspector(childAddress, true);
-                runningTasksVector.add(task);
-                pool.invoke(task);
-                runningTasksVector.remove(task);
+            for (String childAddress : getHrefAddresses(baseURI, document)) {
+                offer(websiteId, includeChildPage, childAddress);
+            }
+        }
+
+        /**
+         * Отмечает адрес обработанным в сохранённой очереди обхода. Вызывается, только когда
+         * страница и её леммы записаны или сохранять нечего, и после постановки в очередь её ссылок;
+         * новые страницы отмечает PageWriter после записи.
+         */
+        private void markDone() {
+            if (includeChildPage) {
+                crawlCheckpoint.complete(websiteId, address);
             }
-//            URI baseURI;
-//            String domain;
-//            try {
-//                baseURI = new URI(address);
-//                domain = baseURI.getHost();
-//                if (!baseURI.getScheme().matches("https?")) {
-//                    return;
-//                }
-//                if (domain == null || domain.isEmpty()) {
-//                    return;
-//                }
-//                if (baseURI.getPath().matches(".*\s+.*")) {
-//                    return;
-//                }
-//            } catch (URISyntaxException e) {
-//                return;
-//            }
-
-//            HttpClient httpClient = HttpClient.newHttpClient();
-//            HttpRequest request = HttpRequest.newBuilder()
-//                    .uri(baseURI)
-//                    .GET()
-//                    .build();
-//            try {
-//                if (stopRunning.get()) {
-//                    System.out.println("Поток остановлен");
-//                    return;
-//                }
-
-//                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-//
-//                HttpHeaders headers = response.headers();
-//                Map<String, List<String>> headersMap = headers.map();
-//                if (!headersMap.containsKey("content-type")) {
-//                    return;
-//                }
-//                List<String> contentTypeList = headersMap.get("content-type");
-//                if (contentTypeList.isEmpty() || !contentTypeList.get(0).matches("text/html.*")) {
-//                    return;
-//                }
-//                String body = response.body();
-//                int statusCode = response.statusCode();
-//                if (statusCode < 200 || statusCode >= 300) {
-//                    return;
-//                }
-
-//                Website website = siteRepository.findByUrl(baseURI.getScheme() + "://" + baseURI.getHost());
-//                if (website == null) {
-//                    return;
-//                }
-
-//                Page page = pageRepository.findByPath(website.getId(), baseURI.getPath());
-//                if (page != null) {
-//                    return;
-//                }
-//
-//                if (stopRunning.get()) {
-//                    System.out.println("Поток остановлен");
-//                    return;
-//                }
-//
-//                page = new Page();
-//                page.setCode(statusCode);
-//                page.setPath(baseURI.getPath());
-//                page.setContent(body);
-//                pageRepository.save(page);
-//                page.setSite(website);
-//                pageRepository.save(page);
-//                website.setStatusTime(LocalDateTime.now());
-//                siteRepository.save(website);
-
-//                HashMap<String, Integer> lemmaMap = TextAnalyzer.getLemmas(TextAnalyzer.getTextWithoutHtmlTags(body));
-//                saveLemmaMap(lemmaMap, website.getId(), page.getId());
-//
-//                if (!includeChildPage) {
-//                    return;
-//                }
-//                if (stopRunning.get()) {
-//                    System.out.println("Поток остановлен");
-//                    return;
-//                }
-
-//                Set<String> inspectSet = new HashSet<>();
-//                Document document = Jsoup.connect(address).userAgent(userSettings.getUserAgent()).referrer(userSettings.getReferrer()).get();
-
-//                Elements aElements = document.select("a");
-//                for (Element aElement : aElements) {
-//                    String href = aElement.attr("href");
-//                    URI resolvedURI;
-//                    URI normalizedURI;
-//                    try {
-//                        resolvedURI = baseURI.resolve(href);
-//                        normalizedURI = resolvedURI.normalize();
-//                        if (!normalizedURI.getScheme().matches("https?")) {
-//                            continue;
-//                        }
-//                        if (!normalizedURI.getHost().equals(domain)) {
-//                            continue;
-//                        }
-//                        String inspectAddress = normalizedURI.getScheme() + "://" + normalizedURI.getHost() + normalizedURI.getPath();
-//                        inspectSet.add(inspectAddress);
-//                    } catch (Exception e) {
-//                        e.printStackTrace();
-//                    }
-//                }
-
-//                List<Page> existingPageList = pageRepository.findByPathList(website.getId(), inspectSet.stream().toList());
-//                existingPageList.stream().forEach(e -> inspectSet.remove(e.getPath()));
-
-//                for (String childAddress : inspectSet) {
-//                    if (stopRunning.get()) {
-//                        System.out.println("Поток остановлен");
-//                        return;
-//                    }
-//                    try {
-//                        Thread.sleep(100);
-//                    } catch (InterruptedException e) {
-//                        e.printStackTrace();
-//                        continue;
-//                    }
-//
-//                    Inspector task = new Inspector(childAddress, true);
-//                    runningTasksVector.add(task);
-//                    pool.invoke(task);
-//                    runningTasksVector.remove(task);
-//                }
-
-//            } catch (IOException | InterruptedException e) {
-//                e.printStackTrace();
-//            }
         }
 
         private URI checkPageAddress(String checkAddress) {
@@ -330,46 +446,79 @@ public class IndexingServiceImpl implements IndexingService {
             return baseURI;
         }
 
-        private Page savePage(URI baseURI, Website website) {
-            Page page = pageRepository.findByPath(website.getId(), baseURI.getPath());
-            if (page != null) {
-                return null;
+        /**
+         * Обновляет уже сохранённую страницу. Неизменившаяся страница (ответ 304 или
+         * совпадение хеша содержимого) заново не разбирается на леммы, и в индекс ничего
+         * не пишется, а HTML разбирается, только если нужны её ссылки; у изменившейся
+         * в lemma и lemmaindex вносится только разница лемм.
+         * Новые содержимое, хеш и валидаторы записываются после лемм: если обход прервётся
+         * между этими записями, хеш останется прежним, и следующий обход обработает страницу снова.
+         * @return документ для поиска ссылок или null, если ссылки искать не нужно
+         */
+        private Document updatePage() {
+            if (fetchedPage.isNotModified()) {
+                String content = includeChildPage ? pageContentStore.getContent(validators.getId()) : null;
+                return content == null ? null : Jsoup.parse(content, baseURI.toString());
             }
-            HttpClient httpClient = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(baseURI)
-                    .GET()
-                    .build();
-            HttpResponse<String> response = null;
-            try {
-                response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                HttpHeaders headers = response.headers();
-                Map<String, List<String>> headersMap = headers.map();
-                if (!headersMap.containsKey("content-type")) {
-                    return null;
-                }
-                List<String> contentTypeList = headersMap.get("content-type");
-                if (contentTypeList.isEmpty() || !contentTypeList.get(0).matches("text/html.*")) {
-                    return null;
-                }
-                String body = response.body();
-                int statusCode = response.statusCode();
-                if (statusCode < 200 || statusCode >= 300) {
-                    return null;
+            String contentHash = ContentHash.sha256(fetchedPage.getBody());
+            if (contentHash.equals(validators.getContentHash())) {
+                if (!Objects.equals(fetchedPage.getStatusCode(), validators.getCode())
+                        || !Objects.equals(fetchedPage.getEtag(), validators.getEtag())
+                        || !Objects.equals(fetchedPage.getLastModified(), validators.getLastModified())) {
+                    pageRepository.updateValidators(validators.getId(), fetchedPage.getStatusCode(),
+                            fetchedPage.getEtag(), fetchedPage.getLastModified());
                 }
-                page = new Page();
-                page.setCode(statusCode);
-                page.setPath(baseURI.getPath());
-                page.setContent(body);
-                pageRepository.save(page);
-                page.setSite(website);
-                pageRepository.save(page);
-                website.setStatusTime(LocalDateTime.now());
-                siteRepository.save(website);
-                return page;
-            } catch (IOException | InterruptedException e) {
+                return includeChildPage ? parse() : null;
+            }
+            Document document = parse();
+            PageText pageText = extract(document);
+            if (stopRunning.get()) {
                 return null;
             }
+            long start = System.nanoTime();
+            Map<String, Integer> lemmaIds = lemmaDictionary.getIds(website.getId(), pageText.getLemmas().keySet());
+            LemmaCounter oldLemmas = indexBatchRepository.updateLemmaMap(validators.getId(), pageText.getLemmas(), lemmaIds);
+            lemmaDictionary.updatePage(website.getId(), oldLemmas, lemmaIds);
+            invertedIndex.updatePage(website.getId(), validators.getId(), oldLemmas, pageText.getLemmas());
+            indexGenerations.increment(website.getId());
+            pageRepository.updateContent(validators.getId(), fetchedPage.getStatusCode(),
+                    pageContentStore.encode(fetchedPage.getBody()), pageText.getTitle(), pageText.getText(),
+                    fetchedPage.getEtag(), fetchedPage.getLastModified(), contentHash);
+            siteRepository.updateStatusTime(website.getId(), LocalDateTime.now());
+            crawlMetrics.record(CrawlMetrics.PERSIST, baseURI.getHost(), System.nanoTime() - start);
+            return document;
+        }
+
+        private Document parse() {
+            return crawlMetrics.record(CrawlMetrics.PARSE, baseURI.getHost(), fetchedPage::getDocument);
+        }
+
+        private PageText extract(Document document) {
+            HtmlTextExtractor extractor = new HtmlTextExtractor(fieldWeights.getTitle(), fieldWeights.getHeading(), fieldWeights.getBody());
+            return crawlMetrics.record(CrawlMetrics.LEMMATIZE, baseURI.getHost(), () -> extractor.extract(document));
+        }
+
+        /**
+         * Передаёт новую страницу с идентификаторами её лемм в PageWriter, который
+         * запишет её пачкой с другими страницами. Уже сохранённая страница не записывается.
+         */
+        private void savePage(PageText pageText) {
+            if (pageRepository.findIdByPath(website.getId(), baseURI.getPath()) != null) {
+                markDone();
+                return;
+            }
+            Page page = new Page();
+            page.setCode(fetchedPage.getStatusCode());
+            page.setPath(baseURI.getPath());
+            page.setContent(pageContentStore.encode(fetchedPage.getBody()));
+            page.setTitle(pageText.getTitle());
+            page.setText(pageText.getText());
+            page.setEtag(fetchedPage.getEtag());
+            page.setLastModified(fetchedPage.getLastModified());
+            page.setContentHash(ContentHash.sha256(fetchedPage.getBody()));
+            page.setSite(website);
+            Map<String, Integer> lemmaIds = lemmaDictionary.getIds(website.getId(), pageText.getLemmas().keySet());
+            pageWriter.add(page, pageText.getLemmas(), lemmaIds, baseURI.getHost(), includeChildPage ? address : null);
         }
 
         private Set<String> getHrefAddresses(URI baseURI, Document document) {
@@ -385,10 +534,10 @@ public class IndexingServiceImpl implements IndexingService {
                     if (!normalizedURI.getScheme().matches("https?")) {
                         continue;
                     }
-                    if (!normalizedURI.getHost().equals(baseURI.getHost())) {
+                    if (!CrawlFrontier.getOrigin(baseURI).equals(CrawlFrontier.getOrigin(normalizedURI))) {
                         continue;
                     }
-                    String inspectAddress = normalizedURI.getScheme() + "://" + normalizedURI.getHost() + normalizedURI.getPath();
+                    String inspectAddress = baseURI.getScheme() + "://" + baseURI.getRawAuthority() + normalizedURI.getPath();
                     inspectSet.add(inspectAddress);
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -396,55 +545,6 @@ public class IndexingServiceImpl implements IndexingService {
             }
             return inspectSet;
         }
-
-        private void saveLemmaMap(HashMap<String, Integer> addLemmaMap, int websiteId, int pageId) {
-            Website website = siteRepository.findById(websiteId).orElse(null);
-            if (website == null) {
-                System.out.println("website == null");
-                return;
-            }
-            Page page = pageRepository.findById(pageId).orElse(null);
-            if (page == null) {
-                System.out.println("page == null");
-                return;
-            }
-            List<Lemma> lemmasList = lemmaRepository.getLemmasListByWebsiteId(addLemmaMap.keySet(), websiteId);
-            HashMap<String, Lemma> lemmasMap = new HashMap<>();
-            lemmasList.stream().forEach(e -> {
-                lemmasMap.put(e.getLemma(), e);
-            });
-
-            addLemmaMap.keySet().stream().forEach(e -> {
-                if (e == null || e.isEmpty() || stopRunning.get()) {
-                    return;
-                }
-                Lemma lemma;
-                if (lemmasMap.containsKey(e)) {
-                    lemma = lemmasMap.get(e);
-                    lemma.setFrequency(lemma.getFrequency() + 1);
-                    lemmaRepository.save(lemma);
-                } else {
-                    lemma = new Lemma();
-                    lemma.setLemma(e);
-                    lemma.setFrequency(1);
-                    lemmaRepository.save(lemma);
-                    lemma.setSite(website);
-                    lemmaRepository.save(lemma);
-                }
-                Index index = indexRepository.findByLemmaAndPage(lemma.getId(), page.getId());
-                if (index != null) {
-                    index.setRank(index.getRank() + addLemmaMap.get(e));
-                    indexRepository.save(index);
-                } else {
-                    index = new Index();
-                    index.setRank(addLemmaMap.get(e));
-                    indexRepository.save(index);
-                    index.setLemma(lemma);
-                    index.setPage(page);
-                    indexRepository.save(index);
-                }
-            });
-        }
     }
 
     public IndexResponse indexPage(String pageUrl) {
@@ -471,123 +571,137 @@ public class IndexingServiceImpl implements IndexingService {
         }
 
         site = sites.get(0);
-        Website website = siteRepository.findByUrl(site.getUrl());
-        if (website != null) {
-            if (website.getStatus().equals(StatusType.INDEXING)) {
-                return new IndexErrorResponse(false, "Индексация сайта уже запущена");
-            }
+        if (isIndexing(site.getUrl())) {
+            return new IndexErrorResponse(false, "Индексация сайта уже запущена");
         }
-        (new Thread(new Starter(site, pageUrl, false))).start();
+        Website website = siteRepository.findByUrl(site.getUrl());
+        startCrawl(website != null ? website : createWebsite(site, true), pageUrl, false, true);
 
         return new IndexResponse(true);
     }
 
-    public IndexResponse search(String query, String site, String offset, String limit) {
-        HashMap<String, Integer> searchLemmasMap = TextAnalyzer.getLemmas(query);
-        if (searchLemmasMap.keySet() == null || searchLemmasMap.keySet().isEmpty()) {
+    public IndexResponse search(String query, String site, String offset, String limit, boolean debug) {
+        SearchProfiler profiler = new SearchProfiler();
+        long start = System.nanoTime();
+        LemmaCounter searchLemmasMap = TextAnalyzer.getLemmas(query);
+        profiler.add(SearchProfiler.LEMMATIZE, System.nanoTime() - start);
+        if (searchLemmasMap.isEmpty()) {
             return new IndexErrorResponse(false, "Задан пустой поисковый запрос");
         }
-        Map<Page, Float> relativeRelevanceMap = getRelativeRelevanceMap(site, searchLemmasMap);
-
-        long pageOffset;
-        long pageLimit;
+        int pageOffset;
+        int pageLimit;
         try {
-            pageOffset = Long.parseLong(offset);
-            pageLimit = Long.parseLong(limit);
+            pageOffset = Math.max(Integer.parseInt(offset), 0);
+            pageLimit = Math.min(Math.max(Integer.parseInt(limit), 0), searchMaxLimit);
         } catch (Exception ex) {
             pageOffset = 0;
             pageLimit = 20;
             ex.printStackTrace();
         }
+        int pageEnd = (int) Math.min((long) pageOffset + pageLimit, Integer.MAX_VALUE);
 
-        List<Page> pages = relativeRelevanceMap.entrySet().stream()
-                .sorted(Comparator.comparing(Map.Entry<Page, Float>::getValue).reversed())
-                .skip(pageOffset)
-                .limit(pageLimit)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-        List<SearchItem> searchItemList = pages.stream().map(page -> {
-            SearchItem item = new SearchItem();
-            item.setSite(page.getSite().getUrl());
-            item.setSiteName(page.getSite().getName());
-            item.setUri(page.getPath());
-            item.setRelevance(relativeRelevanceMap.get(page));
-            item.setTitle(TextAnalyzer.getPageTitle(page.getContent()));
-            item.setSnippet(TextAnalyzer.getSnippets(page.getContent(), searchLemmasMap.keySet()));
-            return item;
-        }).collect(Collectors.toList());
+        Set<String> searchLemmas = searchLemmasMap.keySet();
+        start = System.nanoTime();
+        Website website = siteRepository.findByUrl(site);
+        Collection<Integer> siteIds = website != null ? List.of(website.getId()) : new ArrayList<>(invertedIndex.getSiteIds());
+        String cacheKey = SearchCache.getKey(searchLemmas, site);
+        SearchCache.Entry entry = searchCache.get(cacheKey, siteIds);
+        profiler.add(SearchProfiler.LOOKUP, System.nanoTime() - start);
+        if (entry == null || !entry.covers(pageEnd)) {
+            Map<Integer, Long> generations = indexGenerations.snapshot(siteIds);
+            TopKCollector collector = getRelativeRelevanceMap(siteIds, searchLemmas, Math.max(pageEnd, searchCacheDepth), profiler);
+            float maxRelevance = collector.getMaxScore();
+            start = System.nanoTime();
+            TopKCollector.Result result = collector.getResult();
+            int[] pageIds = new int[result.size()];
+            float[] relevance = new float[result.size()];
+            for (int i = 0; i < result.size(); i++) {
+                pageIds[i] = result.getPageId(i);
+                relevance[i] = result.getScore(i) / maxRelevance;
+            }
+            profiler.add(SearchProfiler.SORT, System.nanoTime() - start);
+            entry = searchCache.createEntry(generations, collector.getTotalCount(), pageIds, relevance);
+            searchCache.put(cacheKey, entry);
+        } else {
+            profiler.setCached(true);
+        }
+
+        start = System.nanoTime();
+        List<SearchItem> searchItemList = getSearchItems(entry, pageOffset, pageEnd, searchLemmas);
+        profiler.add(SearchProfiler.RENDER, System.nanoTime() - start);
+        SearchDebug searchDebug = searchMetrics.finish(profiler, query, searchLemmas, site);
         if (searchItemList == null || searchItemList.isEmpty()) {
             return new IndexErrorResponse(false, "Список найденных страниц пуст");
         }
 
-        return new SearchResponse(true, relativeRelevanceMap.size(), searchItemList);
+        SearchResponse response = new SearchResponse(true, entry.getTotalCount(), searchItemList);
+        if (debug) {
+            response.setDebug(searchDebug);
+        }
+        return response;
     }
 
-    private Map<Page, Float> getRelativeRelevanceMap(String site, HashMap<String, Integer> searchLemmasMap) {
-        Website website = siteRepository.findByUrl(site);
-        int websiteId = 0;
-        List<Lemma> lemmas;
-        if (website != null) {
-            websiteId = website.getId();
-            lemmas = lemmaRepository.getLemmasListByWebsiteId(searchLemmasMap.keySet(), websiteId);
-        } else {
-            lemmas = lemmaRepository.getLemmasList(searchLemmasMap.keySet());
+    /**
+     * Возвращает элементы выдачи с позиции from до to. Заголовки и сниппеты строятся
+     * только для страниц, которых ещё нет в записи кеша.
+     */
+    private List<SearchItem> getSearchItems(SearchCache.Entry entry, int from, int to, Set<String> searchLemmas) {
+        int end = Math.min(to, entry.getPageIds().length);
+        List<Integer> pageIds = new ArrayList<>();
+        Map<Integer, Float> relativeRelevanceMap = new HashMap<>();
+        for (int i = from; i < end; i++) {
+            int pageId = entry.getPageIds()[i];
+            pageIds.add(pageId);
+            relativeRelevanceMap.put(pageId, entry.getRelevance()[i]);
         }
-        if (frequencyLimit == 0) {
-            frequencyLimit = 20;
-        }
-        lemmas = lemmas.stream().filter(lemma -> lemma.getFrequency() <= frequencyLimit).sorted(Comparator.comparing(Lemma::getFrequency)).collect(Collectors.toList());
-
-        Map<Page, Map<String, Float>> relevanceMap = new HashMap<>();
-        int step = 0;
-        for (Lemma lemma : lemmas) {
-            step++;
-            List<Index> indexes = indexRepository.findByLemma(lemma.getId());
-            for (Index index : indexes) {
-                Page page = index.getPage();
-                Map<String, Float> rankMap;
-                if (relevanceMap.containsKey(page)) {
-                    rankMap = relevanceMap.get(page);
-                } else {
-                    rankMap = new HashMap<>();
-                }
-                if (rankMap.containsKey(lemma.getLemma())) {
-                    rankMap.put(lemma.getLemma(), rankMap.get(lemma.getLemma()) + index.getRank());
-                } else {
-                    rankMap.put(lemma.getLemma(), index.getRank());
+        List<Integer> missingPageIds = pageIds.stream()
+                .filter(pageId -> !entry.getItems().containsKey(pageId))
+                .collect(Collectors.toList());
+        if (!missingPageIds.isEmpty()) {
+            List<PageSummary> summaries = pageRepository.findSummariesByIds(missingPageIds);
+            Map<Integer, Website> websites = siteRepository.findAllById(summaries.stream().map(PageSummary::getSiteId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(Website::getId, website -> website));
+            Map<Integer, String> texts = pageContentStore.getTexts(missingPageIds);
+            Map<Integer, Integer> firstPositions = indexBatchRepository.getFirstPositions(missingPageIds, searchLemmas);
+            for (PageSummary page : summaries) {
+                Website website = websites.get(page.getSiteId());
+                if (website == null) {
+                    continue;
                 }
-                relevanceMap.put(page, rankMap);
+                SearchItem item = new SearchItem();
+                item.setSite(website.getUrl());
+                item.setSiteName(website.getName());
+                item.setUri(page.getPath());
+                item.setTitle(page.getTitle());
+                item.setRelevance(relativeRelevanceMap.get(page.getId()));
+                item.setSnippet(TextAnalyzer.getSnippets(texts.get(page.getId()), firstPositions.getOrDefault(page.getId(), -1), searchLemmas));
+                entry.getItems().put(page.getId(), item);
             }
-            System.out.println();
         }
+        return pageIds.stream()
+                .map(entry.getItems()::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        long lemmasCount = lemmas.stream().map(Lemma::getLemma).distinct().count();
-        relevanceMap = relevanceMap.entrySet().stream()
-                .filter(entry -> entry.getValue().size() == lemmasCount)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-        Map<Page, Float> absoluteRelevanceMap = new HashMap<>();
-        relevanceMap.entrySet().stream().forEach(entry -> {
-            Float absoluteRelevance = entry.getValue().values().stream().reduce(0f, (sum, value) -> sum + value);
-            absoluteRelevanceMap.put(entry.getKey(), absoluteRelevance);
-        });
-
-        Float max = absoluteRelevanceMap.values().stream().max(Float::compare).orElse(Float.MAX_VALUE);
-
-        Map<Page, Float> relativeRelevanceMap = new HashMap<>();
-        absoluteRelevanceMap.entrySet().stream().forEach(entry -> {
-            Float relativeRelevance = entry.getValue() / max;
-            relativeRelevanceMap.put(entry.getKey(), relativeRelevance);
-        });
-
-        return relativeRelevanceMap;
+    /**
+     * Отбирает limit самых релевантных страниц; релевантность в коллекторе абсолютная,
+     * относительная получается делением на максимальную по всем найденным страницам.
+     */
+    private TopKCollector getRelativeRelevanceMap(Collection<Integer> siteIds, Set<String> searchLemmas, int limit,
+                                                  SearchProfiler profiler) {
+        if (frequencyLimit == 0) {
+            frequencyLimit = 20;
+        }
+        TopKCollector collector = new TopKCollector(limit);
+        invertedIndex.search(siteIds, searchLemmas, frequencyLimit, collector, profiler);
+        return collector;
     }
 
     public IndexResponse stopIndexing() {
         boolean indexingRunning = false;
         for (Site site : siteList.getSites()) {
-            Website website = siteRepository.findByUrl(site.getUrl());
-            if (website != null && website.getStatus().equals(StatusType.INDEXING)) {
+            if (isIndexing(site.getUrl())) {
                 indexingRunning = true;
             }
         }
@@ -602,20 +716,36 @@ public class IndexingServiceImpl implements IndexingService {
     private void stop() {
         System.out.println("Остановка задач");
         stopRunning.set(true);
-        while (runningTasksVector.size() > 0) {
+        synchronized (this) {
+            if (frontier != null) {
+                for (String origin : frontier.clear()) {
+                    SiteCrawl crawl = runningCrawls.get(origin);
+                    if (crawl != null) {
+                        finishCrawl(origin, crawl.websiteId);
+                    }
+                }
+            }
+        }
+        while (runningCrawls.size() > 0) {
             try {
                 Thread.sleep(1000);
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
+        pageWriter.flush();
+        crawlCheckpoint.flush();
         for (Site site : siteList.getSites()) {
-            Website website = siteRepository.findByUrl(site.getUrl());
-            if (website != null && website.getStatus().equals(StatusType.INDEXING)) {
-                website.setStatus(StatusType.FAILED);
-                website.setStatusTime(LocalDateTime.now());
-                website.setLastError("Индексация остановлена пользователем");
-                siteRepository.save(website);
+            for (Website website : siteRepository.findAllByUrl(site.getUrl())) {
+                if (website.getStatus().equals(StatusType.INDEXING)) {
+                    website.setStatus(StatusType.FAILED);
+                    website.setStatusTime(LocalDateTime.now());
+                    website.setLastError("Индексация остановлена пользователем");
+                    siteRepository.save(website);
+                    if (!website.isActive()) {
+                        invertedIndex.removeSite(website.getId());
+                    }
+                }
             }
         }
     }
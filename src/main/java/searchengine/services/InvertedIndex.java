@@ -0,0 +1,211 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.repositories.IndexBatchRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.utility.LemmaCounter;
+import searchengine.utility.PostingList;
+import searchengine.utility.TopKCollector;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обратный индекс в памяти: для каждого сайта и леммы - сжатый список страниц с рангами.
+ * Строится из таблицы lemmaindex при запуске приложения и дополняется
+ * индексатором по мере сохранения страниц, поэтому поиск не обращается к базе данных.
+ * Поиск по всем сайтам идёт только по текущим поколениям: теневое поколение,
+ * которое строится при переиндексации, становится видимым после вызова activate.
+ * Текущие поколения при запуске берутся из таблицы site, включая поколения без страниц.
+ */
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex {
+    private final IndexBatchRepository indexBatchRepository;
+    private final SiteRepository siteRepository;
+    private final Map<Integer, Map<String, PostingList>> siteIndexes = new ConcurrentHashMap<>();
+    private volatile Set<Integer> activeSiteIds = Set.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        siteIndexes.clear();
+        indexBatchRepository.forEachPosting((siteId, lemma, pageId, rank) ->
+                getPostingList(siteId, lemma).add(pageId, Math.round(rank)));
+        activeSiteIds = Set.copyOf(siteRepository.findActiveIds());
+        System.out.println("Обратный индекс загружен за " + (System.currentTimeMillis() - start) + " мс");
+    }
+
+    /**
+     * Заново загружает из базы поколение сайта, например теневое, обход которого продолжается.
+     */
+    public void loadSite(int siteId) {
+        siteIndexes.remove(siteId);
+        indexBatchRepository.forEachPosting(siteId, (id, lemma, pageId, rank) ->
+                getPostingList(siteId, lemma).add(pageId, Math.round(rank)));
+    }
+
+    public void addPage(int siteId, int pageId, LemmaCounter lemmas) {
+        lemmas.forEach((lemma, rank) -> getPostingList(siteId, lemma).add(pageId, rank));
+    }
+
+    /**
+     * Заменяет ранги изменившейся страницы: списки лемм, ранг которых не изменился, не затрагиваются.
+     */
+    public void updatePage(int siteId, int pageId, LemmaCounter oldLemmas, LemmaCounter lemmas) {
+        oldLemmas.forEach((lemma, rank) -> {
+            PostingList postingList = get(siteId, lemma);
+            if (postingList != null && lemmas.get(lemma) != rank) {
+                postingList.remove(pageId);
+            }
+        });
+        lemmas.forEach((lemma, rank) -> {
+            if (oldLemmas.get(lemma) != rank) {
+                getPostingList(siteId, lemma).add(pageId, rank);
+            }
+        });
+    }
+
+    public void activate(int siteId) {
+        replace(null, siteId);
+    }
+
+    /**
+     * Атомарно заменяет текущее поколение сайта новым: поиск по всем сайтам видит
+     * либо старое, либо новое поколение. Данные старого поколения остаются до removeSite.
+     */
+    public synchronized void replace(Integer oldSiteId, int newSiteId) {
+        Set<Integer> siteIds = new HashSet<>(activeSiteIds);
+        if (oldSiteId != null) {
+            siteIds.remove(oldSiteId);
+        }
+        siteIds.add(newSiteId);
+        activeSiteIds = Set.copyOf(siteIds);
+    }
+
+    public synchronized void removeSite(int siteId) {
+        if (activeSiteIds.contains(siteId)) {
+            Set<Integer> siteIds = new HashSet<>(activeSiteIds);
+            siteIds.remove(siteId);
+            activeSiteIds = Set.copyOf(siteIds);
+        }
+        siteIndexes.remove(siteId);
+    }
+
+    /**
+     * @return идентификаторы текущих поколений сайтов
+     */
+    public Set<Integer> getSiteIds() {
+        return activeSiteIds;
+    }
+
+    /**
+     * @return список страниц сайта для леммы или null, если лемма на сайте не встречается
+     */
+    public PostingList get(int siteId, String lemma) {
+        Map<String, PostingList> siteIndex = siteIndexes.get(siteId);
+        return siteIndex == null ? null : siteIndex.get(lemma);
+    }
+
+    /**
+     * Находит страницы, содержащие все леммы запроса, и суммирует ранги лемм на них.
+     * Леммы, встречающиеся на сайте чаще frequencyLimit страниц, в поиске не участвуют;
+     * если лемма запроса отброшена на всех сайтах, она не учитывается, иначе сайт,
+     * на котором её нет, не даёт результатов. Пересечение начинается с самой редкой леммы.
+     * Найденные страницы с абсолютной релевантностью передаются в collector.
+     */
+    public void search(Collection<Integer> siteIds, Set<String> lemmas, int frequencyLimit, TopKCollector collector) {
+        search(siteIds, lemmas, frequencyLimit, collector, new SearchProfiler());
+    }
+
+    /**
+     * То же, что search, с записью времени поиска списков (lookup), их распаковки (postings)
+     * и пересечения со счётом релевантности (scoring) в profiler.
+     */
+    public void search(Collection<Integer> siteIds, Set<String> lemmas, int frequencyLimit, TopKCollector collector,
+                       SearchProfiler profiler) {
+        long start = System.nanoTime();
+        Set<String> searchLemmas = new HashSet<>();
+        for (int siteId : siteIds) {
+            for (String lemma : lemmas) {
+                PostingList postingList = get(siteId, lemma);
+                if (postingList != null) {
+                    profiler.addPostingSize(lemma, postingList.size());
+                    if (postingList.size() <= frequencyLimit) {
+                        searchLemmas.add(lemma);
+                    }
+                }
+            }
+        }
+        if (searchLemmas.isEmpty()) {
+            profiler.add(SearchProfiler.LOOKUP, System.nanoTime() - start);
+            return;
+        }
+        List<List<PostingList>> sitePostingLists = new ArrayList<>();
+        for (int siteId : siteIds) {
+            List<PostingList> postingLists = new ArrayList<>();
+            for (String lemma : searchLemmas) {
+                PostingList postingList = get(siteId, lemma);
+                if (postingList == null || postingList.size() > frequencyLimit) {
+                    postingLists = null;
+                    break;
+                }
+                postingLists.add(postingList);
+            }
+            if (postingLists == null) {
+                continue;
+            }
+            postingLists.sort(Comparator.comparingInt(PostingList::size));
+            sitePostingLists.add(postingLists);
+        }
+        profiler.add(SearchProfiler.LOOKUP, System.nanoTime() - start);
+        for (List<PostingList> postingLists : sitePostingLists) {
+            intersect(postingLists, collector, profiler);
+        }
+    }
+
+    private static void intersect(List<PostingList> postingLists, TopKCollector collector, SearchProfiler profiler) {
+        long start = System.nanoTime();
+        long postingsNanos = 0;
+        PostingList.Postings rarest = postingLists.get(0).getPostings();
+        postingsNanos += System.nanoTime() - start;
+        int size = rarest.size();
+        int[] pageIds = new int[size];
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            pageIds[i] = rarest.getPageId(i);
+            scores[i] = rarest.getRank(i);
+        }
+        for (int list = 1; list < postingLists.size() && size > 0; list++) {
+            long decodeStart = System.nanoTime();
+            PostingList.Postings postings = postingLists.get(list).getPostings();
+            postingsNanos += System.nanoTime() - decodeStart;
+            int length = 0;
+            int j = 0;
+            for (int i = 0; i < size && j < postings.size(); i++) {
+                while (j < postings.size() && postings.getPageId(j) < pageIds[i]) {
+                    j++;
+                }
+                if (j < postings.size() && postings.getPageId(j) == pageIds[i]) {
+                    pageIds[length] = pageIds[i];
+                    scores[length] = scores[i] + postings.getRank(j);
+                    length++;
+                }
+            }
+            size = length;
+        }
+        for (int i = 0; i < size; i++) {
+            collector.collect(pageIds[i], scores[i]);
+        }
+        profiler.add(SearchProfiler.POSTINGS, postingsNanos);
+        profiler.add(SearchProfiler.SCORING, System.nanoTime() - start - postingsNanos);
+    }
+
+    private PostingList getPostingList(int siteId, String lemma) {
+        return siteIndexes.computeIfAbsent(siteId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(lemma, key -> new PostingList());
+    }
+}
@@ -0,0 +1,108 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.repositories.IndexBatchRepository;
+import searchengine.utility.LemmaCounter;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь лемм сайтов: соответствие лемма - идентификатор и накопленные изменения частот.
+ * Индексаторы не обновляют строки таблицы lemma на каждую страницу: частоты копятся
+ * в памяти (ConcurrentHashMap.merge атомарен для каждой леммы) и периодически
+ * сбрасываются в базу одним потоком, поэтому запись не упирается в блокировки строк.
+ * Частота леммы - число страниц сайта, на которых она встречается.
+ */
+@Component
+@RequiredArgsConstructor
+public class LemmaDictionary {
+    private final IndexBatchRepository indexBatchRepository;
+    private final CrawlMetrics crawlMetrics;
+    private final Map<Integer, Map<String, Integer>> siteLemmaIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> frequencyDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * @return идентификаторы непустых лемм; недостающие леммы создаются в базе
+     */
+    public Map<String, Integer> getIds(int siteId, Collection<String> lemmas) {
+        Map<String, Integer> lemmaIds = siteLemmaIds.computeIfAbsent(siteId, id -> new ConcurrentHashMap<>());
+        Map<String, Integer> result = new HashMap<>();
+        List<String> missingLemmas = new ArrayList<>();
+        for (String lemma : lemmas) {
+            if (lemma.isEmpty()) {
+                continue;
+            }
+            Integer lemmaId = lemmaIds.get(lemma);
+            if (lemmaId != null) {
+                result.put(lemma, lemmaId);
+            } else {
+                missingLemmas.add(lemma);
+            }
+        }
+        if (!missingLemmas.isEmpty()) {
+            Map<String, Integer> createdIds = indexBatchRepository.getOrCreateLemmaIds(siteId, missingLemmas);
+            lemmaIds.putAll(createdIds);
+            result.putAll(createdIds);
+        }
+        return result;
+    }
+
+    public void addPage(Map<String, Integer> lemmaIds) {
+        lemmaIds.values().forEach(lemmaId -> addFrequency(lemmaId, 1));
+    }
+
+    public void updatePage(int siteId, LemmaCounter oldLemmas, Map<String, Integer> lemmaIds) {
+        List<String> removedLemmas = new ArrayList<>();
+        oldLemmas.forEach((lemma, rank) -> {
+            if (!lemmaIds.containsKey(lemma)) {
+                removedLemmas.add(lemma);
+            }
+        });
+        getIds(siteId, removedLemmas).values().forEach(lemmaId -> addFrequency(lemmaId, -1));
+        lemmaIds.forEach((lemma, lemmaId) -> {
+            if (!oldLemmas.containsKey(lemma)) {
+                addFrequency(lemmaId, 1);
+            }
+        });
+    }
+
+    /**
+     * Забывает леммы сайта; вызывается при удалении его данных.
+     */
+    public void removeSite(int siteId) {
+        Map<String, Integer> lemmaIds = siteLemmaIds.remove(siteId);
+        if (lemmaIds != null) {
+            lemmaIds.values().forEach(frequencyDeltas::remove);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${crawl-settings.lemma-flush-interval:5000}")
+    @PreDestroy
+    public synchronized void flush() {
+        SortedMap<Integer, Integer> deltas = new TreeMap<>();
+        for (Integer lemmaId : frequencyDeltas.keySet()) {
+            Integer delta = frequencyDeltas.remove(lemmaId);
+            if (delta != null && delta != 0) {
+                deltas.put(lemmaId, delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        crawlMetrics.recordBatch("lemma", deltas.size());
+        try {
+            indexBatchRepository.addFrequencies(deltas);
+        } catch (RuntimeException e) {
+            deltas.forEach(this::addFrequency);
+            throw e;
+        }
+    }
+
+    private void addFrequency(int lemmaId, int delta) {
+        frequencyDeltas.merge(lemmaId, delta, Integer::sum);
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.config.ContentCompression;
+import searchengine.model.PageTextView;
+import searchengine.repositories.PageRepository;
+import searchengine.utility.ContentCodec;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Чтение текста страниц по требованию. Поиск работает с идентификаторами и краткими
+ * сведениями о страницах, а текст загружается только для страниц, попавших в выдачу.
+ * HTML-код страниц хранится сжатым (storage.content-compression) и распаковывается
+ * только при повторном разборе сохранённой страницы.
+ */
+@Component
+public class PageContentStore {
+    private final PageRepository pageRepository;
+    private final ContentCompression compression;
+
+    public PageContentStore(PageRepository pageRepository,
+                            @Value("${storage.content-compression:lz4}") ContentCompression compression) {
+        this.pageRepository = pageRepository;
+        this.compression = compression;
+    }
+
+    public Map<Integer, String> getTexts(Collection<Integer> pageIds) {
+        Map<Integer, String> texts = new HashMap<>();
+        if (pageIds.isEmpty()) {
+            return texts;
+        }
+        for (PageTextView view : pageRepository.findTextsByIds(pageIds)) {
+            texts.put(view.getId(), view.getText());
+        }
+        return texts;
+    }
+
+    /**
+     * @return сохранённый HTML-код страницы или null, если страницы нет
+     */
+    public String getContent(int pageId) {
+        return ContentCodec.decode(pageRepository.findContentById(pageId));
+    }
+
+    /**
+     * @return HTML-код страницы в формате хранения для столбца page.content
+     */
+    public byte[] encode(String content) {
+        return ContentCodec.encode(content, compression);
+    }
+}
@@ -0,0 +1,127 @@
+package searchengine.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.UserSettings;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Загрузка страниц одним HTTP-клиентом на всё приложение.
+ * Клиент переиспользует соединения и поддерживает HTTP/2, поэтому страницы
+ * одного сайта не требуют нового TCP/TLS-соединения на каждый запрос.
+ * Перенаправления не выполняются: страница сохраняется под тем адресом,
+ * с которого загружена, и содержимое чужих сайтов в индекс не попадает.
+ */
+@Component
+public class PageFetcher {
+    private static final int NOT_MODIFIED = 304;
+
+    private final UserSettings userSettings;
+    private final CrawlMetrics crawlMetrics;
+    private final Duration timeout;
+    private final HtmlBodyHandler bodyHandler;
+    private final HttpClient httpClient;
+
+    public PageFetcher(UserSettings userSettings, CrawlSettings crawlSettings, CrawlMetrics crawlMetrics) {
+        this.userSettings = userSettings;
+        this.crawlMetrics = crawlMetrics;
+        this.timeout = Duration.ofMillis(crawlSettings.getTimeout());
+        this.bodyHandler = new HtmlBodyHandler(crawlSettings.getMaxPageSize());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public FetchedPage fetch(URI uri) {
+        return fetch(uri, null, null);
+    }
+
+    /**
+     * Загружает страницу. Если переданы ETag или Last-Modified сохранённой копии, запрос
+     * делается условным, и неизменившаяся страница возвращается без тела с кодом 304.
+     * Тело читается, только если по заголовкам ответ - HTML-страница с кодом 2xx,
+     * и обрезается после crawl-settings.max-page-size байт (см. HtmlBodyHandler).
+     * @return null, если страница недоступна, не является HTML-документом или код ответа не 2xx
+     */
+    public FetchedPage fetch(URI uri, String etag, String lastModified) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(timeout)
+                .GET();
+        if (userSettings.getUserAgent() != null) {
+            builder.header("User-Agent", userSettings.getUserAgent());
+        }
+        if (userSettings.getReferrer() != null) {
+            builder.header("Referer", userSettings.getReferrer());
+        }
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        String site = uri.getHost();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(builder.build(), bodyHandler);
+            crawlMetrics.record(CrawlMetrics.FETCH, site, System.nanoTime() - start);
+            crawlMetrics.recordResponse(site, String.valueOf(response.statusCode()));
+            String responseEtag = response.headers().firstValue("etag").orElse(null);
+            String responseLastModified = response.headers().firstValue("last-modified").orElse(null);
+            if (response.statusCode() == NOT_MODIFIED) {
+                crawlMetrics.recordFetched(site);
+                return new FetchedPage(response.uri(), NOT_MODIFIED, null,
+                        responseEtag != null ? responseEtag : etag,
+                        responseLastModified != null ? responseLastModified : lastModified);
+            }
+            if (response.body() == null) {
+                return null;
+            }
+            crawlMetrics.recordFetched(site);
+            return new FetchedPage(response.uri(), response.statusCode(), response.body(), responseEtag, responseLastModified);
+        } catch (IOException e) {
+            crawlMetrics.recordResponse(site, "error");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class FetchedPage {
+        private final URI uri;
+        private final int statusCode;
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+        private Document document;
+
+        public boolean isNotModified() {
+            return statusCode == NOT_MODIFIED;
+        }
+
+        /**
+         * Разбирает уже загруженное тело страницы; повторной загрузки не происходит.
+         */
+        public Document getDocument() {
+            if (document == null) {
+                document = Jsoup.parse(body, uri.toString());
+            }
+            return document;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.model.Page;
+import searchengine.repositories.PageBatchRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.utility.LemmaCounter;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Накопитель новых страниц обхода. Обработанные страницы копятся в памяти
+ * и записываются пачками по crawl-settings.page-batch-size страниц
+ * (и не реже раза в crawl-settings.page-flush-interval мс) одной транзакцией
+ * вместе с индексами. Обратный индекс, частоты лемм и сохранённая очередь
+ * обхода обновляются только после того, как пачка записана; если запись
+ * не удалась, страницы пачки не считаются обработанными и будут загружены снова.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageWriter {
+    private final PageBatchRepository pageBatchRepository;
+    private final SiteRepository siteRepository;
+    private final LemmaDictionary lemmaDictionary;
+    private final InvertedIndex invertedIndex;
+    private final IndexGenerations indexGenerations;
+    private final CrawlCheckpoint crawlCheckpoint;
+    private final CrawlMetrics crawlMetrics;
+    private final CrawlSettings crawlSettings;
+    private final Object writeLock = new Object();
+    private List<PendingPage> pendingPages = new ArrayList<>();
+
+    @RequiredArgsConstructor
+    private static class PendingPage {
+        private final Page page;
+        private final LemmaCounter lemmas;
+        private final Map<String, Integer> lemmaIds;
+        private final String host;
+        private final String address;
+    }
+
+    /**
+     * Ставит страницу в очередь на запись.
+     * @param address адрес для отметки в сохранённой очереди обхода или null, если отмечать не нужно
+     */
+    public void add(Page page, LemmaCounter lemmas, Map<String, Integer> lemmaIds, String host, String address) {
+        boolean full;
+        synchronized (this) {
+            pendingPages.add(new PendingPage(page, lemmas, lemmaIds, host, address));
+            full = pendingPages.size() >= crawlSettings.getPageBatchSize();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает накопленные страницы. Записи идут по одной, поэтому после возврата
+     * из метода все страницы, поставленные в очередь до вызова, записаны.
+     */
+    @Scheduled(fixedDelayString = "${crawl-settings.page-flush-interval:1000}")
+    @PreDestroy
+    public void flush() {
+        synchronized (writeLock) {
+            List<PendingPage> batch;
+            synchronized (this) {
+                if (pendingPages.isEmpty()) {
+                    return;
+                }
+                batch = pendingPages;
+                pendingPages = new ArrayList<>();
+            }
+            write(batch);
+        }
+    }
+
+    private void write(List<PendingPage> batch) {
+        List<Page> pages = new ArrayList<>(batch.size());
+        List<LemmaCounter> lemmaMaps = new ArrayList<>(batch.size());
+        List<Map<String, Integer>> lemmaIds = new ArrayList<>(batch.size());
+        for (PendingPage pendingPage : batch) {
+            pages.add(pendingPage.page);
+            lemmaMaps.add(pendingPage.lemmas);
+            lemmaIds.add(pendingPage.lemmaIds);
+        }
+        long start = System.nanoTime();
+        try {
+            pageBatchRepository.savePages(pages, lemmaMaps, lemmaIds);
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось записать " + batch.size() + " страниц");
+            e.printStackTrace();
+            return;
+        }
+        long pageNanos = (System.nanoTime() - start) / batch.size();
+        crawlMetrics.recordBatch("page", batch.size());
+        Set<Integer> siteIds = new LinkedHashSet<>();
+        for (PendingPage pendingPage : batch) {
+            int siteId = pendingPage.page.getSite().getId();
+            siteIds.add(siteId);
+            crawlMetrics.record(CrawlMetrics.PERSIST, pendingPage.host, pageNanos);
+            crawlMetrics.recordBatch("lemmaindex", pendingPage.lemmaIds.size());
+            lemmaDictionary.addPage(pendingPage.lemmaIds);
+            invertedIndex.addPage(siteId, pendingPage.page.getId(), pendingPage.lemmas);
+            if (pendingPage.address != null) {
+                crawlCheckpoint.complete(siteId, pendingPage.address);
+            }
+        }
+        for (int siteId : siteIds) {
+            indexGenerations.increment(siteId);
+            siteRepository.updateStatusTime(siteId, LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.services;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.dto.search.SearchItem;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кеш результатов поиска. Ключ - отсортированный набор лемм запроса и адрес сайта.
+ * Запись хранит упорядоченный по релевантности список страниц на заданную глубину
+ * и уже построенные элементы выдачи, поэтому повторный запрос и переход
+ * по страницам выдачи не требуют ни поиска по индексу, ни построения сниппетов.
+ * Размер кеша ограничен, записи устаревают по времени и при смене поколения индекса сайтов.
+ */
+@Component
+public class SearchCache {
+    private final IndexGenerations indexGenerations;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    public SearchCache(IndexGenerations indexGenerations,
+                       @Value("${search.cache-size:1000}") int maxSize,
+                       @Value("${search.cache-ttl:300}") long ttlSeconds) {
+        this.indexGenerations = indexGenerations;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SearchCache.this.maxSize;
+            }
+        };
+    }
+
+    public static String getKey(Set<String> lemmas, String site) {
+        return String.join(" ", new TreeSet<>(lemmas)) + "|" + (site == null ? "" : site);
+    }
+
+    /**
+     * @return действующая запись или null, если её нет, она устарела или индекс сайтов изменился
+     */
+    public Entry get(String key, Collection<Integer> siteIds) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.createdAt > ttlMillis
+                || !entry.generations.equals(indexGenerations.snapshot(siteIds))) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Создаёт запись; поколения сайтов нужно зафиксировать до поиска по индексу,
+     * чтобы изменения, сделанные во время поиска, сделали запись устаревшей.
+     */
+    public Entry createEntry(Map<Integer, Long> generations, int totalCount, int[] pageIds, float[] relevance) {
+        return new Entry(generations, totalCount, pageIds, relevance);
+    }
+
+    public void put(String key, Entry entry) {
+        if (maxSize <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Getter
+    public static class Entry {
+        private final long createdAt = System.currentTimeMillis();
+        private final Map<Integer, Long> generations;
+        private final int totalCount;
+        private final int[] pageIds;
+        private final float[] relevance;
+        private final Map<Integer, SearchItem> items = new ConcurrentHashMap<>();
+
+        private Entry(Map<Integer, Long> generations, int totalCount, int[] pageIds, float[] relevance) {
+            this.generations = generations;
+            this.totalCount = totalCount;
+            this.pageIds = pageIds;
+            this.relevance = relevance;
+        }
+
+        /**
+         * Достаточно ли отобранных страниц для выдачи до позиции end.
+         */
+        public boolean covers(int end) {
+            return pageIds.length >= end || pageIds.length == totalCount;
+        }
+    }
+}
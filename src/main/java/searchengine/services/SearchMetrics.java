@@ -0,0 +1,66 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.dto.search.SearchDebug;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики поиска: гистограммы времени запроса (search.latency) и его этапов (search.phase).
+ * Запросы дольше search.slow-query-threshold миллисекунд попадают в журнал медленных
+ * запросов вместе с леммами и размерами их списков страниц.
+ */
+@Component
+public class SearchMetrics {
+    private final MeterRegistry registry;
+    private final long slowQueryThresholdMillis;
+
+    public SearchMetrics(MeterRegistry registry,
+                         @Value("${search.slow-query-threshold:500}") long slowQueryThresholdMillis) {
+        this.registry = registry;
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    /**
+     * Записывает метрики завершённого запроса.
+     * @return разбивка времени запроса по этапам
+     */
+    public SearchDebug finish(SearchProfiler profiler, String query, Set<String> lemmas, String site) {
+        long totalNanos = profiler.getElapsedNanos();
+        Timer.builder("search.latency")
+                .tag("cached", String.valueOf(profiler.isCached()))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(totalNanos, TimeUnit.NANOSECONDS);
+        Map<String, Double> phasesMs = new LinkedHashMap<>();
+        profiler.getPhases().forEach((phase, nanos) -> {
+            Timer.builder("search.phase")
+                    .tag("phase", phase)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            phasesMs.put(phase, toMillis(nanos));
+        });
+
+        SearchDebug debug = new SearchDebug();
+        debug.setTotalMs(toMillis(totalNanos));
+        debug.setCached(profiler.isCached());
+        debug.setPhasesMs(phasesMs);
+        debug.setPostingSizes(profiler.getPostingSizes());
+        if (slowQueryThresholdMillis >= 0 && debug.getTotalMs() > slowQueryThresholdMillis) {
+            System.out.println("Медленный запрос " + debug.getTotalMs() + " мс: \"" + query + "\", сайт \"" + site
+                    + "\", леммы " + lemmas + ", размеры списков " + profiler.getPostingSizes() + ", этапы " + phasesMs);
+        }
+        return debug;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
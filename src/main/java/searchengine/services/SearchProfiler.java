@@ -0,0 +1,51 @@
+package searchengine.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Время этапов одного поискового запроса и размеры списков страниц его лемм.
+ * Время этапа, который выполняется несколько раз (например, для каждого сайта), суммируется.
+ */
+public class SearchProfiler {
+    public static final String LEMMATIZE = "lemmatize";
+    public static final String LOOKUP = "lookup";
+    public static final String POSTINGS = "postings";
+    public static final String SCORING = "scoring";
+    public static final String SORT = "sort";
+    public static final String RENDER = "render";
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, Integer> postingSizes = new TreeMap<>();
+    private boolean cached;
+
+    public void add(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    public void addPostingSize(String lemma, int size) {
+        postingSizes.merge(lemma, size, Integer::sum);
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    public Map<String, Integer> getPostingSizes() {
+        return postingSizes;
+    }
+}
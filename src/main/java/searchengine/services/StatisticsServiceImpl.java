@@ -1,7 +1,6 @@
 package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
@@ -27,7 +26,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     @Override
     public StatisticsResponse getStatistics() {
 
-        List<Website> websiteList = siteRepository.findAll(Sort.by("url"));
+        List<Website> websiteList = siteRepository.findAllActive();
         TotalStatistics total = new TotalStatistics();
         total.setSites(websiteList.size());
         total.setIndexing(true);
@@ -43,9 +42,11 @@ public class StatisticsServiceImpl implements StatisticsService {
             lemmas = lemmas != null ? lemmas : 0;
             item.setPages(pages);
             item.setLemmas(lemmas);
-            item.setStatus(site.getStatus().toString());
-            item.setError(site.getLastError());
-            Date statusTime = Date.from(site.getStatusTime().atZone(ZoneId.systemDefault()).toInstant());
+            Website shadow = siteRepository.findShadowByUrl(site.getUrl());
+            Website state = shadow != null ? shadow : site;
+            item.setStatus(state.getStatus().toString());
+            item.setError(state.getLastError());
+            Date statusTime = Date.from(state.getStatusTime().atZone(ZoneId.systemDefault()).toInstant());
             item.setStatusTime(statusTime.getTime());
             total.setPages(total.getPages() + pages);
             total.setLemmas(total.getLemmas() + lemmas);
@@ -0,0 +1,61 @@
+package searchengine.utility;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import searchengine.config.ContentCompression;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Формат хранения HTML-кода страницы в столбце page.content. Первый байт - способ записи:
+ * 0 - текст в UTF-8 как есть, 1 - блок LZ4, перед которым 4 байта длины исходного текста.
+ * Если сжатие не уменьшает размер, текст записывается как есть. Прочитать можно
+ * значение, записанное в любом режиме, поэтому режим можно менять без пересохранения страниц.
+ */
+public class ContentCodec {
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+    private static final int LZ4_HEADER_SIZE = 5;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    private ContentCodec() {
+    }
+
+    public static byte[] encode(String content, ContentCompression compression) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (compression == ContentCompression.LZ4) {
+            LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+            byte[] encoded = new byte[LZ4_HEADER_SIZE + compressor.maxCompressedLength(bytes.length)];
+            int length = compressor.compress(bytes, 0, bytes.length, encoded, LZ4_HEADER_SIZE);
+            if (LZ4_HEADER_SIZE + length < bytes.length + 1) {
+                ByteBuffer.wrap(encoded).put(LZ4).putInt(bytes.length);
+                return Arrays.copyOf(encoded, LZ4_HEADER_SIZE + length);
+            }
+        }
+        byte[] encoded = new byte[bytes.length + 1];
+        encoded[0] = RAW;
+        System.arraycopy(bytes, 0, encoded, 1, bytes.length);
+        return encoded;
+    }
+
+    public static String decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return encoded == null ? null : "";
+        }
+        switch (encoded[0]) {
+            case RAW:
+                return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+            case LZ4:
+                int length = ByteBuffer.wrap(encoded, 1, 4).getInt();
+                byte[] bytes = new byte[length];
+                LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+                decompressor.decompress(encoded, LZ4_HEADER_SIZE, encoded.length - LZ4_HEADER_SIZE, bytes, 0);
+                return new String(bytes, StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Неизвестный формат содержимого страницы: " + encoded[0]);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package searchengine.utility;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.util.Set;
+
+/**
+ * Извлечение видимого текста из разобранной страницы за один обход DOM.
+ * Содержимое script, style и других невидимых элементов пропускается.
+ * Слова заголовка страницы, заголовков h1-h6 и остального текста
+ * учитываются в счётчике лемм со своими весами.
+ */
+public class HtmlTextExtractor {
+    private static final Set<String> SKIPPED_TAGS = Set.of("head", "script", "style", "noscript", "template", "svg", "iframe", "object");
+    private static final Set<String> HEADING_TAGS = Set.of("h1", "h2", "h3", "h4", "h5", "h6");
+
+    private final int titleWeight;
+    private final int headingWeight;
+    private final int bodyWeight;
+
+    public HtmlTextExtractor(int titleWeight, int headingWeight, int bodyWeight) {
+        this.titleWeight = titleWeight;
+        this.headingWeight = headingWeight;
+        this.bodyWeight = bodyWeight;
+    }
+
+    public PageText extract(Document document) {
+        LemmaCounter lemmaCounter = new LemmaCounter(256);
+        Tokenizer tokenizer = new Tokenizer();
+        String title = document.title();
+        TextAnalyzer.countLemmas(title, titleWeight, lemmaCounter, tokenizer);
+        StringBuilder text = new StringBuilder();
+        NodeTraversor.filter(new VisibleTextFilter(text, (from, to, heading) ->
+                TextAnalyzer.countLemmas(text, from, to, heading ? headingWeight : bodyWeight, true, lemmaCounter, tokenizer)), document);
+        return new PageText(title, text.toString(), lemmaCounter);
+    }
+
+    public static String getVisibleText(Document document) {
+        StringBuilder text = new StringBuilder();
+        NodeTraversor.filter(new VisibleTextFilter(text, null), document);
+        return text.toString();
+    }
+
+    private interface TextListener {
+        void accept(int from, int to, boolean heading);
+    }
+
+    private static class VisibleTextFilter implements NodeFilter {
+        private final StringBuilder text;
+        private final TextListener listener;
+        private int headingDepth;
+
+        private VisibleTextFilter(StringBuilder text, TextListener listener) {
+            this.text = text;
+            this.listener = listener;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof Element element) {
+                String tagName = element.normalName();
+                if (SKIPPED_TAGS.contains(tagName)) {
+                    return FilterResult.SKIP_ENTIRELY;
+                }
+                if (HEADING_TAGS.contains(tagName)) {
+                    headingDepth++;
+                }
+                return FilterResult.CONTINUE;
+            }
+            if (node instanceof TextNode textNode && !textNode.isBlank()) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                int from = text.length();
+                text.append(textNode.text().strip());
+                if (listener != null) {
+                    listener.accept(from, text.length(), headingDepth > 0);
+                }
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            if (node instanceof Element element && HEADING_TAGS.contains(element.normalName())) {
+                headingDepth--;
+            }
+            return FilterResult.CONTINUE;
+        }
+    }
+}
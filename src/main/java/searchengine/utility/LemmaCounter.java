@@ -0,0 +1,118 @@
+package searchengine.utility;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Счётчик лемм с открытой адресацией и значениями-примитивами:
+ * в отличие от HashMap&lt;String, Integer&gt; не создаёт объектов Integer
+ * и узлов на каждое увеличение счётчика.
+ * Для каждой леммы может храниться позиция её первого вхождения в текст (-1, если неизвестна).
+ */
+public class LemmaCounter {
+    private String[] keys;
+    private int[] values;
+    private int[] positions;
+    private int size;
+
+    public LemmaCounter() {
+        this(64);
+    }
+
+    public LemmaCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+        positions = new int[capacity];
+    }
+
+    public void add(String key, int value) {
+        add(key, value, -1);
+    }
+
+    public void add(String key, int value, int position) {
+        int index = indexOf(key);
+        if (keys[index] == null) {
+            keys[index] = key;
+            size++;
+            values[index] = value;
+            positions[index] = position;
+            if (size * 2 > keys.length) {
+                resize();
+            }
+        } else {
+            values[index] += value;
+            if (position >= 0 && (positions[index] < 0 || position < positions[index])) {
+                positions[index] = position;
+            }
+        }
+    }
+
+    public int get(String key) {
+        int index = indexOf(key);
+        return keys[index] == null ? 0 : values[index];
+    }
+
+    public int getPosition(String key) {
+        int index = indexOf(key);
+        return keys[index] == null ? -1 : positions[index];
+    }
+
+    public boolean containsKey(String key) {
+        return keys[indexOf(key)] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(ObjIntConsumer<String> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public Set<String> keySet() {
+        Set<String> keySet = new HashSet<>(size * 2);
+        for (String key : keys) {
+            if (key != null) {
+                keySet.add(key);
+            }
+        }
+        return keySet;
+    }
+
+    private int indexOf(String key) {
+        int mask = keys.length - 1;
+        int hash = key.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (keys[index] != null && !keys[index].equals(key)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldPositions = positions;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        positions = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                positions[index] = oldPositions[i];
+            }
+        }
+    }
+}
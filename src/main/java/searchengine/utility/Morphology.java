@@ -0,0 +1,130 @@
+package searchengine.utility;
+
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Единственный на приложение экземпляр морфологического словаря.
+ * Словарь загружается один раз; результаты разбора словоформ кешируются
+ * в ограниченном кеше с вытеснением давно не использованных записей.
+ * Кеш разбит на сегменты, чтобы потоки обхода не конкурировали за одну блокировку.
+ */
+public class Morphology {
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+    private static final int SEGMENT_COUNT = 16;
+    private static volatile Morphology instance;
+
+    private final LuceneMorphology luceneMorphology;
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private Morphology(int cacheSize) {
+        try {
+            luceneMorphology = new RussianLuceneMorphology();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int segmentSize = Math.max(cacheSize / SEGMENT_COUNT, 1);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public static Morphology getInstance() {
+        Morphology morphology = instance;
+        if (morphology == null) {
+            morphology = init(DEFAULT_CACHE_SIZE);
+        }
+        return morphology;
+    }
+
+    /**
+     * Загружает словарь, если он ещё не загружен.
+     */
+    public static synchronized Morphology init(int cacheSize) {
+        if (instance == null) {
+            instance = new Morphology(cacheSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Возвращает нормальную форму и морфологическую информацию слова в нижнем регистре.
+     * Для слов, отсутствующих в словаре, возвращается WordForm.UNKNOWN.
+     */
+    public WordForm getWordForm(String word) {
+        Segment segment = segments[(word.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+        WordForm wordForm;
+        synchronized (segment) {
+            wordForm = segment.get(word);
+        }
+        if (wordForm != null) {
+            hits.increment();
+            return wordForm;
+        }
+        misses.increment();
+        wordForm = analyze(word);
+        synchronized (segment) {
+            segment.put(word, wordForm);
+        }
+        return wordForm;
+    }
+
+    private WordForm analyze(String word) {
+        try {
+            List<String> wordNormalForms = luceneMorphology.getNormalForms(word);
+            List<String> wordMorphInfo = luceneMorphology.getMorphInfo(word);
+            if (wordMorphInfo == null || wordNormalForms == null || wordMorphInfo.isEmpty() || wordNormalForms.isEmpty()) {
+                return WordForm.UNKNOWN;
+            }
+            return new WordForm(wordNormalForms.get(0), wordMorphInfo.get(0));
+        } catch (Exception e) {
+            return WordForm.UNKNOWN;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int getCacheSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private static class Segment extends LinkedHashMap<String, WordForm> {
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WordForm> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
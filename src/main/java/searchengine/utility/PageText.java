@@ -0,0 +1,15 @@
+package searchengine.utility;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Результат разбора страницы: заголовок, видимый текст и взвешенные количества лемм.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageText {
+    private final String title;
+    private final String text;
+    private final LemmaCounter lemmas;
+}
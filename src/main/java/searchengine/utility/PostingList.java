@@ -0,0 +1,180 @@
+package searchengine.utility;
+
+import java.util.Arrays;
+
+/**
+ * Список страниц, содержащих лемму, с рангом леммы на каждой странице.
+ * Пары (идентификатор страницы, ранг) хранятся сжато: страницы упорядочены
+ * по возрастанию идентификатора и записаны разностями, разности и ранги -
+ * целыми переменной длины (varint). Новые страницы сначала попадают
+ * в небольшой буфер и вливаются в сжатый список пачками.
+ */
+public class PostingList {
+    private static final int BUFFER_SIZE = 64;
+
+    private byte[] data = new byte[16];
+    private int dataLength;
+    private int size;
+    private int lastPageId = -1;
+    private int[] bufferPageIds = new int[4];
+    private int[] bufferRanks = new int[4];
+    private int bufferSize;
+
+    public synchronized void add(int pageId, int rank) {
+        if (bufferSize == 0 && pageId > lastPageId) {
+            append(pageId, rank);
+            return;
+        }
+        if (bufferSize == bufferPageIds.length) {
+            bufferPageIds = Arrays.copyOf(bufferPageIds, bufferSize * 2);
+            bufferRanks = Arrays.copyOf(bufferRanks, bufferSize * 2);
+        }
+        bufferPageIds[bufferSize] = pageId;
+        bufferRanks[bufferSize] = rank;
+        bufferSize++;
+        if (bufferSize >= BUFFER_SIZE) {
+            merge();
+        }
+    }
+
+    public synchronized void remove(int pageId) {
+        merge();
+        Postings postings = decode();
+        int index = Arrays.binarySearch(postings.pageIds, 0, postings.size, pageId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(postings.pageIds, index + 1, postings.pageIds, index, postings.size - index - 1);
+        System.arraycopy(postings.ranks, index + 1, postings.ranks, index, postings.size - index - 1);
+        encode(postings.pageIds, postings.ranks, postings.size - 1);
+    }
+
+    public synchronized int size() {
+        return size + bufferSize;
+    }
+
+    /**
+     * Возвращает распакованную копию списка, упорядоченную по идентификатору страницы.
+     */
+    public synchronized Postings getPostings() {
+        merge();
+        return decode();
+    }
+
+    private void merge() {
+        if (bufferSize == 0) {
+            return;
+        }
+        Postings postings = decode();
+        int total = postings.size + bufferSize;
+        int[] pageIds = Arrays.copyOf(postings.pageIds, total);
+        int[] ranks = Arrays.copyOf(postings.ranks, total);
+        System.arraycopy(bufferPageIds, 0, pageIds, postings.size, bufferSize);
+        System.arraycopy(bufferRanks, 0, ranks, postings.size, bufferSize);
+        bufferSize = 0;
+        sortByPageId(pageIds, ranks, total);
+        int length = 0;
+        for (int i = 0; i < total; i++) {
+            if (length > 0 && pageIds[length - 1] == pageIds[i]) {
+                ranks[length - 1] += ranks[i];
+            } else {
+                pageIds[length] = pageIds[i];
+                ranks[length] = ranks[i];
+                length++;
+            }
+        }
+        encode(pageIds, ranks, length);
+    }
+
+    private void encode(int[] pageIds, int[] ranks, int length) {
+        data = new byte[Math.max(length * 3, 16)];
+        dataLength = 0;
+        size = 0;
+        lastPageId = -1;
+        for (int i = 0; i < length; i++) {
+            append(pageIds[i], ranks[i]);
+        }
+    }
+
+    private void append(int pageId, int rank) {
+        if (data.length - dataLength < 10) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        writeVarInt(pageId - lastPageId);
+        writeVarInt(rank);
+        lastPageId = pageId;
+        size++;
+    }
+
+    private Postings decode() {
+        int[] pageIds = new int[size];
+        int[] ranks = new int[size];
+        int position = 0;
+        int pageId = -1;
+        for (int i = 0; i < size; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            pageId += value;
+            pageIds[i] = pageId;
+            value = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            ranks[i] = value;
+        }
+        return new Postings(pageIds, ranks, size);
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[dataLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[dataLength++] = (byte) value;
+    }
+
+    private static void sortByPageId(int[] pageIds, int[] ranks, int length) {
+        long[] pairs = new long[length];
+        for (int i = 0; i < length; i++) {
+            pairs[i] = ((long) pageIds[i] << 32) | (ranks[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(pairs);
+        for (int i = 0; i < length; i++) {
+            pageIds[i] = (int) (pairs[i] >>> 32);
+            ranks[i] = (int) pairs[i];
+        }
+    }
+
+    public static class Postings {
+        private final int[] pageIds;
+        private final int[] ranks;
+        private final int size;
+
+        private Postings(int[] pageIds, int[] ranks, int size) {
+            this.pageIds = pageIds;
+            this.ranks = ranks;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getPageId(int index) {
+            return pageIds[index];
+        }
+
+        public int getRank(int index) {
+            return ranks[index];
+        }
+    }
+}
@@ -1,13 +1,9 @@
 package searchengine.utility;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,74 +16,57 @@ public class TextAnalyzer {
     @Value("${snippet.indent}")
     private static int snippetIndent;
 
-    public static HashMap<String, Integer> getLemmas(String text) {
+    private static final int EXCLUDED_PARTS_OF_SPEECH = WordForm.PREPOSITION | WordForm.CONJUNCTION | WordForm.INTERJECTION;
 
-        LuceneMorphology luceneMorph;
-        try {
-            luceneMorph = new RussianLuceneMorphology();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        HashMap<String, Integer> map = new HashMap<>();
-        String textRu = text.toLowerCase().replaceAll("[^А-Яа-яЁё]+", " ").replaceAll("[\\s]{2,}", " ");
-        String[] words = textRu.split(" ");
-        for (String word : words) {
-            try {
-                List<String> wordNormalForms = luceneMorph.getNormalForms(word);
-                List<String> wordMorphInfo = luceneMorph.getMorphInfo(word);
-                if (wordMorphInfo == null || wordNormalForms == null || wordMorphInfo.isEmpty() || wordNormalForms.isEmpty()) {
-                    continue;
-                }
-                String normalForm = wordNormalForms.get(0);
-                String morphInfo = wordMorphInfo.get(0);
-                if (morphInfo.matches(".*ПРЕДЛ.*|.*СОЮЗ.*|.*МЕЖД.*")) {
-                    continue;
-                }
-                if (map.containsKey(normalForm)) {
-                    map.put(normalForm, map.get(normalForm) + 1);
-                } else {
-                    map.put(normalForm, 1);
-                }
-            } catch (Exception e) {
+    public static LemmaCounter getLemmas(CharSequence text) {
+        LemmaCounter lemmaCounter = new LemmaCounter();
+        countLemmas(text, 1, lemmaCounter, new Tokenizer());
+        return lemmaCounter;
+    }
+
+    /**
+     * Добавляет в счётчик леммы слов текста, каждую с указанным весом.
+     * Предлоги, союзы и междометия пропускаются.
+     */
+    public static void countLemmas(CharSequence text, int weight, LemmaCounter lemmaCounter, Tokenizer tokenizer) {
+        countLemmas(text, 0, text.length(), weight, lemmaCounter, tokenizer);
+    }
+
+    public static void countLemmas(CharSequence text, int from, int to, int weight, LemmaCounter lemmaCounter, Tokenizer tokenizer) {
+        countLemmas(text, from, to, weight, false, lemmaCounter, tokenizer);
+    }
+
+    /**
+     * @param trackPositions запоминать позицию первого вхождения каждой леммы в тексте
+     */
+    public static void countLemmas(CharSequence text, int from, int to, int weight, boolean trackPositions,
+                                   LemmaCounter lemmaCounter, Tokenizer tokenizer) {
+        Morphology morphology = Morphology.getInstance();
+        tokenizer.tokenize(text, from, to, (word, offset) -> {
+            WordForm wordForm = morphology.getWordForm(word);
+            if (wordForm.isUnknown() || wordForm.isPartOfSpeech(EXCLUDED_PARTS_OF_SPEECH)) {
+                return;
             }
-        }
-        return map;
+            lemmaCounter.add(wordForm.getNormalForm(), weight, trackPositions ? offset : -1);
+        });
     }
 
     public static String getTextWithoutHtmlTags(String text) {
-        return text.replaceAll("<[^<>]+>", " ").replaceAll("[\\s]{2,}", " ");
+        return HtmlTextExtractor.getVisibleText(Jsoup.parse(text));
     }
 
-    public static String getSnippets(String content, Set<String> lemmas) {
-        LuceneMorphology luceneMorph;
-        try {
-            luceneMorph = new RussianLuceneMorphology();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-        Document document = Jsoup.parse(content);
-        String text = document.text();
-        String textRu = text.replaceAll("[^А-Яа-яЁё]+", " ").replaceAll("[\\s]{2,}", " ");
-        String[] words = textRu.split(" ");
-        Set<String> replaceWordsSet = Arrays.stream(words).filter(word -> {
-            List<String> wordNormalForms;
-            try {
-                wordNormalForms = luceneMorph.getNormalForms(word.toLowerCase());
-            }
-            catch(Exception ex) {
-                return false;
-            }
-            if (wordNormalForms == null || wordNormalForms.isEmpty()) {
-                return false;
-            }
-            String normalForm = wordNormalForms.get(0);
-            return lemmas.contains(normalForm);
-        }).collect(Collectors.toSet());
-        for (String word : replaceWordsSet) {
-            String replaceWord = "<b>" + word + "</b>";
-            text = text.replaceAll(word, replaceWord);
+    /**
+     * Формирует фрагмент сохранённого текста страницы вокруг первого вхождения лемм запроса
+     * и выделяет слова запроса тегом &lt;b&gt;. Лемматизируются только слова фрагмента.
+     * @param position позиция первого вхождения, сохранённая при индексации, или -1, если её нет
+     */
+    public static String getSnippets(String text, int position, Set<String> lemmas) {
+        if (text == null || text.isEmpty()) {
+            return "";
         }
-        int firstPosition = text.indexOf("<b>");
+        Morphology morphology = Morphology.getInstance();
+        Tokenizer tokenizer = new Tokenizer();
+        int firstPosition = position >= 0 && position < text.length() ? position : findFirstPosition(text, lemmas, tokenizer);
         if (firstPosition < 0) {
             return "";
         }
@@ -98,12 +77,47 @@ public class TextAnalyzer {
         if (snippetLength <= 0) {
             snippetLength = 500;
         }
-        int startIndex = text.indexOf(" ", Math.max(firstPosition - snippetIndent, 0)) + 1;
-        int lastIndex = text.lastIndexOf(" ", Math.min(firstPosition + snippetLength, text.length() - 1));
-        if (startIndex < 0 || startIndex > lastIndex || lastIndex > text.length()) {
-            return "";
+        int startIndex = 0;
+        if (firstPosition - snippetIndent > 0) {
+            int spaceIndex = text.indexOf(' ', firstPosition - snippetIndent);
+            startIndex = spaceIndex >= 0 && spaceIndex < firstPosition ? spaceIndex + 1 : firstPosition;
         }
-        return text.substring(startIndex, lastIndex);
+        int lastIndex = text.length();
+        if (firstPosition + snippetLength < text.length()) {
+            int spaceIndex = text.lastIndexOf(' ', firstPosition + snippetLength);
+            lastIndex = spaceIndex > firstPosition ? spaceIndex : firstPosition + snippetLength;
+        }
+
+        StringBuilder snippet = new StringBuilder(lastIndex - startIndex + 64);
+        int[] copied = {startIndex};
+        tokenizer.tokenize(text, startIndex, lastIndex, (word, offset) -> {
+            WordForm wordForm = morphology.getWordForm(word);
+            if (wordForm.isUnknown() || !lemmas.contains(wordForm.getNormalForm())) {
+                return;
+            }
+            snippet.append(text, copied[0], offset)
+                    .append("<b>")
+                    .append(text, offset, offset + word.length())
+                    .append("</b>");
+            copied[0] = offset + word.length();
+        });
+        snippet.append(text, copied[0], lastIndex);
+        return snippet.toString();
+    }
+
+    private static int findFirstPosition(String text, Set<String> lemmas, Tokenizer tokenizer) {
+        Morphology morphology = Morphology.getInstance();
+        int[] firstPosition = {-1};
+        tokenizer.tokenize(text, (word, offset) -> {
+            if (firstPosition[0] >= 0) {
+                return;
+            }
+            WordForm wordForm = morphology.getWordForm(word);
+            if (!wordForm.isUnknown() && lemmas.contains(wordForm.getNormalForm())) {
+                firstPosition[0] = offset;
+            }
+        });
+        return firstPosition[0];
     }
 
     public static String getPageTitle(String text) {
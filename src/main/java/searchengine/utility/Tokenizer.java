@@ -0,0 +1,52 @@
+package searchengine.utility;
+
+/**
+ * Потоковый разбор текста на русские слова за один проход.
+ * Словом считается непрерывная последовательность кириллических букв;
+ * слово приводится к нижнему регистру во внутреннем буфере, поэтому копии
+ * всего текста не создаются.
+ */
+public class Tokenizer {
+    private char[] buffer = new char[64];
+
+    public interface TokenConsumer {
+        /**
+         * @param word слово в нижнем регистре
+         * @param offset позиция первой буквы слова в исходном тексте
+         */
+        void accept(String word, int offset);
+    }
+
+    public static boolean isCyrillic(char c) {
+        return (c >= 'А' && c <= 'я') || c == 'Ё' || c == 'ё';
+    }
+
+    public void tokenize(CharSequence text, TokenConsumer consumer) {
+        tokenize(text, 0, text.length(), consumer);
+    }
+
+    public void tokenize(CharSequence text, int from, int to, TokenConsumer consumer) {
+        int length = 0;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (isCyrillic(c)) {
+                if (length == 0) {
+                    start = i;
+                }
+                if (length == buffer.length) {
+                    char[] newBuffer = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, newBuffer, 0, length);
+                    buffer = newBuffer;
+                }
+                buffer[length++] = Character.toLowerCase(c);
+            } else if (length > 0) {
+                consumer.accept(new String(buffer, 0, length), start);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            consumer.accept(new String(buffer, 0, length), start);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package searchengine.utility;
+
+import java.util.Arrays;
+
+/**
+ * Отбор K страниц с наибольшей релевантностью без сортировки всех найденных.
+ * Пары (страница, релевантность) хранятся в двоичной куче из примитивов,
+ * в вершине которой - худшая из отобранных страниц. Общее число найденных
+ * страниц и максимальная релевантность считаются отдельно.
+ * При равной релевантности выше стоит страница с меньшим идентификатором.
+ * Массивы кучи растут удвоением по мере поступления страниц, поэтому большая
+ * ёмкость не выделяет память, пока столько страниц не найдено.
+ */
+public class TopKCollector {
+    private static final int INITIAL_SIZE = 16;
+
+    private final int capacity;
+    private int[] pageIds;
+    private float[] scores;
+    private int size;
+    private int totalCount;
+    private float maxScore;
+
+    public TopKCollector(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.pageIds = new int[Math.min(this.capacity, INITIAL_SIZE)];
+        this.scores = new float[this.pageIds.length];
+    }
+
+    public void collect(int pageId, float score) {
+        totalCount++;
+        if (totalCount == 1 || score > maxScore) {
+            maxScore = score;
+        }
+        if (capacity == 0) {
+            return;
+        }
+        if (size < capacity) {
+            if (size == pageIds.length) {
+                grow();
+            }
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isWorse(pageIds[0], scores[0], pageId, score)) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public float getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * Извлекает отобранные страницы в порядке убывания релевантности; после вызова коллектор пуст.
+     */
+    public Result getResult() {
+        int count = size;
+        int[] sortedPageIds = new int[count];
+        float[] sortedScores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sortedPageIds[i] = pageIds[0];
+            sortedScores[i] = scores[0];
+            size--;
+            pageIds[0] = pageIds[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return new Result(sortedPageIds, sortedScores);
+    }
+
+    private void grow() {
+        int length = (int) Math.min((long) pageIds.length * 2, capacity);
+        pageIds = Arrays.copyOf(pageIds, length);
+        scores = Arrays.copyOf(scores, length);
+    }
+
+    private static boolean isWorse(int pageId, float score, int otherPageId, float otherScore) {
+        return score < otherScore || (score == otherScore && pageId > otherPageId);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(pageIds[index], scores[index], pageIds[parent], scores[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isWorse(pageIds[right], scores[right], pageIds[left], scores[left])) {
+                worst = right;
+            }
+            if (!isWorse(pageIds[worst], scores[worst], pageIds[index], scores[index])) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int pageId = pageIds[i];
+        pageIds[i] = pageIds[j];
+        pageIds[j] = pageId;
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    public static class Result {
+        private final int[] pageIds;
+        private final float[] scores;
+
+        private Result(int[] pageIds, float[] scores) {
+            this.pageIds = pageIds;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return pageIds.length;
+        }
+
+        public int getPageId(int index) {
+            return pageIds[index];
+        }
+
+        public float getScore(int index) {
+            return scores[index];
+        }
+    }
+}
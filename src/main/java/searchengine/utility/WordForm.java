@@ -0,0 +1,50 @@
+package searchengine.utility;
+
+import lombok.Getter;
+
+/**
+ * Нормальная форма слова и его морфологическая информация.
+ * Часть речи разбирается один раз при создании и хранится битовой маской.
+ */
+@Getter
+public class WordForm {
+    public static final int PREPOSITION = 1;
+    public static final int CONJUNCTION = 1 << 1;
+    public static final int INTERJECTION = 1 << 2;
+    public static final WordForm UNKNOWN = new WordForm(null, null);
+
+    private final String normalForm;
+    private final String morphInfo;
+    private final int partOfSpeech;
+
+    public WordForm(String normalForm, String morphInfo) {
+        this.normalForm = normalForm;
+        this.morphInfo = morphInfo;
+        this.partOfSpeech = parsePartOfSpeech(morphInfo);
+    }
+
+    private static int parsePartOfSpeech(String morphInfo) {
+        if (morphInfo == null) {
+            return 0;
+        }
+        int mask = 0;
+        if (morphInfo.contains("ПРЕДЛ")) {
+            mask |= PREPOSITION;
+        }
+        if (morphInfo.contains("СОЮЗ")) {
+            mask |= CONJUNCTION;
+        }
+        if (morphInfo.contains("МЕЖД")) {
+            mask |= INTERJECTION;
+        }
+        return mask;
+    }
+
+    public boolean isUnknown() {
+        return normalForm == null;
+    }
+
+    public boolean isPartOfSpeech(int mask) {
+        return (partOfSpeech & mask) != 0;
+    }
+}
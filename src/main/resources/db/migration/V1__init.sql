@@ -0,0 +1,52 @@
+-- Исходная схема: таблицы в том виде, в каком их создавал Hibernate (ddl-auto: create),
+-- с индексами только под внешние ключи и уникальным ключом леммы сайта.
+
+CREATE TABLE site (
+    id          INT                                   NOT NULL AUTO_INCREMENT,
+    url         VARCHAR(255)                          NOT NULL,
+    name        VARCHAR(255)                          NOT NULL,
+    last_error  TEXT,
+    status      ENUM ('INDEXING', 'INDEXED', 'FAILED') NOT NULL,
+    status_time DATETIME(6)                           NOT NULL,
+    active      BIT(1)                                NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE page (
+    id            INT           NOT NULL AUTO_INCREMENT,
+    site_id       INT,
+    path          VARCHAR(2048) NOT NULL,
+    code          INT           NOT NULL,
+    content       MEDIUMTEXT    NOT NULL,
+    title         TEXT,
+    text          MEDIUMTEXT,
+    etag          VARCHAR(255),
+    last_modified VARCHAR(64),
+    content_hash  CHAR(64),
+    PRIMARY KEY (id),
+    KEY fk_page_site (site_id),
+    CONSTRAINT fk_page_site FOREIGN KEY (site_id) REFERENCES site (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE lemma (
+    id        INT                              NOT NULL AUTO_INCREMENT,
+    site_id   INT,
+    lemma     VARCHAR(255) COLLATE utf8mb4_bin NOT NULL,
+    frequency INT                              NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_lemma_site_lemma (site_id, lemma),
+    CONSTRAINT fk_lemma_site FOREIGN KEY (site_id) REFERENCES site (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE lemmaindex (
+    id             INT   NOT NULL AUTO_INCREMENT,
+    page_id        INT,
+    lemma_id       INT,
+    lemmarank      FLOAT,
+    first_position INT   NOT NULL DEFAULT -1,
+    PRIMARY KEY (id),
+    KEY fk_lemmaindex_page (page_id),
+    KEY fk_lemmaindex_lemma (lemma_id),
+    CONSTRAINT fk_lemmaindex_page FOREIGN KEY (page_id) REFERENCES page (id),
+    CONSTRAINT fk_lemmaindex_lemma FOREIGN KEY (lemma_id) REFERENCES lemma (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,21 @@
+-- Индексы под частые запросы репозиториев.
+
+-- findByUrl, findShadowByUrl, findAllByUrl: поиск поколений сайта по адресу
+ALTER TABLE site
+    ADD INDEX ix_site_url_active (url, active);
+
+-- findIdByPath, findValidatorsByPath: страница сайта по пути. Путь длиннее допустимого
+-- размера ключа, поэтому индексируется префикс. Индекс внешнего ключа fk_page_site
+-- остаётся: он неявно заканчивается первичным ключом, (site_id, id), и только по нему
+-- выборка страниц сайта порциями по возрастанию id (SitePurgeRepository) идёт без сортировки.
+ALTER TABLE page
+    ADD INDEX ix_page_site_path (site_id, path(191));
+
+-- Уникальная пара (страница, лемма): индексы страницы при обновлении и удалении,
+-- позиции первых вхождений для сниппетов. Покрывающий индекс (lemma_id, page_id, lemmarank)
+-- отдаёт список страниц леммы без обращения к строкам таблицы.
+ALTER TABLE lemmaindex
+    ADD UNIQUE KEY uk_lemmaindex_page_lemma (page_id, lemma_id),
+    ADD INDEX ix_lemmaindex_lemma_page (lemma_id, page_id, lemmarank),
+    DROP INDEX fk_lemmaindex_page,
+    DROP INDEX fk_lemmaindex_lemma;
@@ -0,0 +1,12 @@
+-- Блочное выделение идентификаторов страниц (pooled-lo): Hibernate берёт из таблицы
+-- начало очередного блока из 100 идентификаторов и не ждёт AUTO_INCREMENT от каждой вставки.
+
+CREATE TABLE id_generator (
+    name    VARCHAR(255) NOT NULL,
+    next_id BIGINT,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+INSERT INTO id_generator (name, next_id)
+SELECT 'page', COALESCE(MAX(id), 0) + 1
+FROM page;
@@ -0,0 +1,7 @@
+-- HTML-код страницы хранится в двоичном виде с байтом формата (см. ContentCodec):
+-- сохранённые ранее страницы помечаются форматом 0 (UTF-8 без сжатия)
+-- и сжимаются при следующем изменении.
+
+ALTER TABLE page MODIFY content MEDIUMBLOB NOT NULL;
+
+UPDATE page SET content = CONCAT(0x00, content);
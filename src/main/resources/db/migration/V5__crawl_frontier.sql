@@ -0,0 +1,11 @@
+-- Сохранённая очередь обхода: адреса, найденные при обходе поколения сайта (state = 0)
+-- и уже обработанные (state = 1). По ней режим resume продолжает прерванный обход.
+-- Адрес может быть длиннее допустимого ключа, поэтому уникальность - по его хешу SHA-256.
+
+CREATE TABLE crawl_frontier (
+    site_id      INT           NOT NULL,
+    address_hash CHAR(64)      NOT NULL,
+    address      VARCHAR(2048) NOT NULL,
+    state        TINYINT       NOT NULL,
+    PRIMARY KEY (site_id, address_hash)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;